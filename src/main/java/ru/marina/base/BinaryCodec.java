@@ -0,0 +1,364 @@
+package ru.marina.base;
+
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.model.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The BinaryCodec class encodes requests, responses and the model classes into a compact binary form.
+ * Every write method has a matching sizeOf method, so a message can be written straight into a buffer
+ * of the exact size. Strings are stored as their UTF-8 length followed by the bytes (-1 for null),
+ * enums as their ordinal (-1 for null), optional objects behind a presence byte
+ * and lists as their size followed by the elements.
+ */
+public class BinaryCodec {
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final Scalar.Kind[] SCALAR_KINDS = Scalar.Kind.values();
+
+    public static int sizeOf(Request request) {
+        int size = Long.BYTES + Integer.BYTES;
+        for (String arg : request.getInput()) {
+            size += sizeOf(arg);
+        }
+        return size + sizeOfOptional(request.getMusicBand());
+    }
+
+    public static void write(ByteBuffer buffer, Request request) {
+        buffer.putLong(request.getId());
+        buffer.putInt(request.getInput().length);
+        for (String arg : request.getInput()) {
+            write(buffer, arg);
+        }
+        writeOptional(buffer, request.getMusicBand());
+    }
+
+    public static Request readRequest(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        String[] input = new String[readLength(buffer)];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = readString(buffer);
+        }
+        Request request = new Request(input, readOptionalMusicBand(buffer));
+        request.setId(id);
+        return request;
+    }
+
+    public static int sizeOf(Response response) {
+        int size = Long.BYTES + 2 * Byte.BYTES + sizeOf(response.getMessage()) + sizeOfOptional(response.getMusicBand())
+                + 4 * Integer.BYTES;
+        for (MusicBand musicBand : response.getMusicBands()) {
+            size += sizeOf(musicBand);
+        }
+        for (Label label : response.getLabels()) {
+            size += sizeOf(label);
+        }
+        for (Scalar scalar : response.getScalars()) {
+            size += sizeOf(scalar);
+        }
+        for (List<Scalar> record : response.getRecords()) {
+            size += Integer.BYTES;
+            for (Scalar scalar : record) {
+                size += sizeOf(scalar);
+            }
+        }
+        return size;
+    }
+
+    public static void write(ByteBuffer buffer, Response response) {
+        buffer.putLong(response.getRequestId());
+        writeEnum(buffer, response.getStatus());
+        buffer.put((byte) (response.isPartial() ? 1 : 0));
+        write(buffer, response.getMessage());
+        writeOptional(buffer, response.getMusicBand());
+        buffer.putInt(response.getMusicBands().size());
+        for (MusicBand musicBand : response.getMusicBands()) {
+            write(buffer, musicBand);
+        }
+        buffer.putInt(response.getLabels().size());
+        for (Label label : response.getLabels()) {
+            write(buffer, label);
+        }
+        buffer.putInt(response.getScalars().size());
+        for (Scalar scalar : response.getScalars()) {
+            write(buffer, scalar);
+        }
+        buffer.putInt(response.getRecords().size());
+        for (List<Scalar> record : response.getRecords()) {
+            buffer.putInt(record.size());
+            for (Scalar scalar : record) {
+                write(buffer, scalar);
+            }
+        }
+    }
+
+    public static Response readResponse(ByteBuffer buffer) {
+        long requestId = buffer.getLong();
+        Status status = readEnum(buffer, STATUSES);
+        boolean partial = buffer.get() != 0;
+        String message = readString(buffer);
+        Response response = new Response(status, message, readOptionalMusicBand(buffer));
+        response.setRequestId(requestId);
+        response.setPartial(partial);
+        MusicBand[] musicBands = new MusicBand[readLength(buffer)];
+        for (int i = 0; i < musicBands.length; i++) {
+            musicBands[i] = readMusicBand(buffer);
+        }
+        response.setMusicBands(List.of(musicBands));
+        Label[] labels = new Label[readLength(buffer)];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = readLabel(buffer);
+        }
+        response.setLabels(List.of(labels));
+        Scalar[] scalars = new Scalar[readLength(buffer)];
+        for (int i = 0; i < scalars.length; i++) {
+            scalars[i] = readScalar(buffer);
+        }
+        response.setScalars(List.of(scalars));
+        List<List<Scalar>> records = new ArrayList<>();
+        for (int i = readLength(buffer); i > 0; i--) {
+            Scalar[] record = new Scalar[readLength(buffer)];
+            for (int j = 0; j < record.length; j++) {
+                record[j] = readScalar(buffer);
+            }
+            records.add(List.of(record));
+        }
+        response.setRecords(records);
+        return response;
+    }
+
+    public static int sizeOf(MusicBand musicBand) {
+        return Long.BYTES
+                + sizeOf(musicBand.getName())
+                + sizeOf(musicBand.getCoordinates())
+                + Long.BYTES
+                + Integer.BYTES
+                + Integer.BYTES
+                + Byte.BYTES
+                + sizeOf(musicBand.getLabel());
+    }
+
+    public static void write(ByteBuffer buffer, MusicBand musicBand) {
+        buffer.putLong(musicBand.getId());
+        write(buffer, musicBand.getName());
+        write(buffer, musicBand.getCoordinates());
+        buffer.putLong(musicBand.getCreationDate().getTime());
+        buffer.putInt(musicBand.getNumberOfParticipants());
+        buffer.putInt(musicBand.getAlbumsCount());
+        writeEnum(buffer, musicBand.getMusicGenre());
+        write(buffer, musicBand.getLabel());
+    }
+
+    public static MusicBand readMusicBand(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        String name = readString(buffer);
+        Coordinates coordinates = readCoordinates(buffer);
+        Date creationDate = new Date(buffer.getLong());
+        int numberOfParticipants = buffer.getInt();
+        int albumsCount = buffer.getInt();
+        MusicGenre genre = readEnum(buffer, GENRES);
+        Label label = readLabel(buffer);
+        return new MusicBand(id, name, coordinates, creationDate, numberOfParticipants, albumsCount, genre, label);
+    }
+
+    public static int sizeOf(Coordinates coordinates) {
+        return Double.BYTES * 2;
+    }
+
+    public static void write(ByteBuffer buffer, Coordinates coordinates) {
+        buffer.putDouble(coordinates.getX());
+        buffer.putDouble(coordinates.getY());
+    }
+
+    public static Coordinates readCoordinates(ByteBuffer buffer) {
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        return new Coordinates(x, y);
+    }
+
+    public static int sizeOf(Label label) {
+        return sizeOf(label.getName()) + Byte.BYTES + (label.getBands() != null ? Long.BYTES : 0) + Double.BYTES;
+    }
+
+    public static void write(ByteBuffer buffer, Label label) {
+        write(buffer, label.getName());
+        if (label.getBands() != null) {
+            buffer.put((byte) 1);
+            buffer.putLong(label.getBands());
+        } else {
+            buffer.put((byte) 0);
+        }
+        buffer.putDouble(label.getSales());
+    }
+
+    public static Label readLabel(ByteBuffer buffer) {
+        String name = readString(buffer);
+        Long bands = buffer.get() != 0 ? buffer.getLong() : null;
+        double sales = buffer.getDouble();
+        return new Label(name, bands, sales);
+    }
+
+    public static int sizeOf(Scalar scalar) {
+        int size = sizeOf(scalar.getName()) + Byte.BYTES;
+        return size + switch (scalar.getKind()) {
+            case LONG, DATE -> Long.BYTES;
+            case DOUBLE -> Double.BYTES;
+            case TEXT -> sizeOf(scalar.getText());
+        };
+    }
+
+    public static void write(ByteBuffer buffer, Scalar scalar) {
+        write(buffer, scalar.getName());
+        writeEnum(buffer, scalar.getKind());
+        switch (scalar.getKind()) {
+            case LONG, DATE -> buffer.putLong(scalar.getLong());
+            case DOUBLE -> buffer.putDouble(scalar.getDouble());
+            case TEXT -> write(buffer, scalar.getText());
+        }
+    }
+
+    public static Scalar readScalar(ByteBuffer buffer) {
+        String name = readString(buffer);
+        Scalar.Kind kind = readEnum(buffer, SCALAR_KINDS);
+        if (kind == null) {
+            throw new IllegalArgumentException("Scalar without a type");
+        }
+        return switch (kind) {
+            case LONG -> Scalar.of(name, buffer.getLong());
+            case DATE -> Scalar.of(name, new Date(buffer.getLong()));
+            case DOUBLE -> Scalar.of(name, buffer.getDouble());
+            case TEXT -> Scalar.of(name, readString(buffer));
+        };
+    }
+
+    public static int sizeOf(String s) {
+        return Integer.BYTES + (s != null ? utf8Length(s) : 0);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by the UTF-8 bytes, encoding it straight into the buffer.
+     *
+     * @param buffer the buffer to write to
+     * @param s      the string to write, may be null
+     */
+    public static void write(ByteBuffer buffer, String s) {
+        if (s == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(utf8Length(s));
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '\uFFFD';
+                }
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        String s;
+        if (buffer.hasArray()) {
+            s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    /**
+     * Counts the bytes a string takes in UTF-8 without encoding it.
+     *
+     * @param s the string
+     * @return the UTF-8 length of the string
+     */
+    public static int utf8Length(String s) {
+        int length = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x800) {
+                // three bytes for a BMP character, four bytes for a surrogate pair that takes two chars
+                length += 2;
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                }
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static int sizeOfOptional(MusicBand musicBand) {
+        return Byte.BYTES + (musicBand != null ? sizeOf(musicBand) : 0);
+    }
+
+    private static void writeOptional(ByteBuffer buffer, MusicBand musicBand) {
+        if (musicBand != null) {
+            buffer.put((byte) 1);
+            write(buffer, musicBand);
+        } else {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static MusicBand readOptionalMusicBand(ByteBuffer buffer) {
+        return buffer.get() != 0 ? readMusicBand(buffer) : null;
+    }
+
+    private static void writeEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put((byte) (value != null ? value.ordinal() : -1));
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer buffer, E[] values) {
+        int ordinal = buffer.get();
+        if (ordinal == -1) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IllegalArgumentException("Invalid enum ordinal: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,250 @@
+package ru.marina.base;
+
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import javax.naming.NoPermissionException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The BinarySnapshot class reads and writes the collection in a fixed-layout binary file.
+ * <p>
+ * The file starts with a header, followed by one record of {@link #RECORD_SIZE} bytes per music band and a
+ * string table. Band names and label names are stored once in the string table and referred to by their index,
+ * so a label shared by many bands costs a single entry. The file is opened through memory mappings:
+ * the strings are decoded once and the records are decoded in parallel straight from the mapped pages,
+ * without any text parsing.
+ * <pre>
+ * header:  int magic, int version, int record size, int record count, int string count, int string data size,
+ *          long string table offset
+ * record:  long id, double x, double y, long creation date, long label bands, double label sales,
+ *          int participants, int albums, int name, int label name (-1 for none),
+ *          byte genre (-1 for none), byte flags, 6 bytes of padding
+ * strings: int offset of every string relative to the string data, then the UTF-8 string data
+ * </pre>
+ * The string data size lets a file cut off inside the string data be told from a complete one;
+ * files of the first version leave it zero and are read without that check.
+ */
+public class BinarySnapshot {
+    public static final String EXTENSION = ".bin";
+    public static final int RECORD_SIZE = 72;
+
+    private static final int MAGIC = 0x4D42534E;
+    private static final int VERSION = 2;
+    private static final int FIRST_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RECORDS_PER_MAPPING = Integer.MAX_VALUE / RECORD_SIZE;
+    private static final int HAS_LABEL_BANDS = 1;
+    private static final byte[] PADDING = new byte[6];
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+
+    /**
+     * Checks whether the file is a binary snapshot, judging by its extension.
+     *
+     * @param path the path of the file
+     * @return true if the file name ends with {@link #EXTENSION}
+     */
+    public static boolean isBinary(Path path) {
+        return path.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    /**
+     * Writes the music bands to the file, replacing it atomically.
+     *
+     * @param musicBands the music bands to write
+     * @param path       the path of the file
+     * @return the size of the written file in bytes
+     * @throws IOException           if the file cannot be written
+     * @throws NoPermissionException if the file or its directory is not writable
+     */
+    public static long write(Collection<MusicBand> musicBands, Path path) throws IOException, NoPermissionException {
+        return Serializer.writeAtomically(path, channel -> writeTo(channel, musicBands));
+    }
+
+    /**
+     * Reads the music bands from the file.
+     *
+     * @param path the path of the file
+     * @return the music bands in file order
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static List<MusicBand> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a snapshot file: " + path.getFileName());
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path.getFileName());
+            }
+            int version = header.getInt(4);
+            if (version != VERSION && version != FIRST_VERSION || header.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int count = header.getInt(12);
+            int stringCount = header.getInt(16);
+            long stringsOffset = header.getLong(24);
+            if (count < 0 || stringCount < 0 || stringsOffset != HEADER_SIZE + (long) count * RECORD_SIZE
+                    || stringsOffset + 4L * stringCount > size
+                    || version == VERSION && stringsOffset + 4L * stringCount + header.getInt(20) != size) {
+                throw new IOException("The snapshot file is damaged");
+            }
+
+            String[] strings = readStrings(channel, stringsOffset, stringCount, size);
+            MappedByteBuffer[] mappings = new MappedByteBuffer[(count + RECORDS_PER_MAPPING - 1) / RECORDS_PER_MAPPING];
+            for (int i = 0; i < mappings.length; i++) {
+                int records = Math.min(RECORDS_PER_MAPPING, count - i * RECORDS_PER_MAPPING);
+                mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + (long) i * RECORDS_PER_MAPPING * RECORD_SIZE, (long) records * RECORD_SIZE);
+            }
+            try {
+                return IntStream.range(0, count).parallel()
+                        .mapToObj(i -> readRecord(mappings[i / RECORDS_PER_MAPPING],
+                                (i % RECORDS_PER_MAPPING) * RECORD_SIZE, strings))
+                        .toList();
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException("The snapshot file is damaged: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void writeTo(FileChannel channel, Collection<MusicBand> musicBands) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        int count = musicBands.size();
+        long stringsOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        // the string count and the string data size are known only at the end, the header is written again then
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(count)
+                .putInt(0).putInt(0).putLong(stringsOffset);
+
+        int written = 0;
+        for (MusicBand musicBand : musicBands) {
+            if (written++ == count) {
+                throw new IOException("The collection has been changed while writing");
+            }
+            if (buffer.remaining() < RECORD_SIZE) {
+                drain(channel, buffer);
+            }
+            Label label = musicBand.getLabel();
+            Long labelBands = label.getBands();
+            buffer.putLong(musicBand.getId())
+                    .putDouble(musicBand.getCoordinates().getX())
+                    .putDouble(musicBand.getCoordinates().getY())
+                    .putLong(musicBand.getCreationDate().getTime())
+                    .putLong(labelBands == null ? 0 : labelBands)
+                    .putDouble(label.getSales())
+                    .putInt(musicBand.getNumberOfParticipants())
+                    .putInt(musicBand.getAlbumsCount())
+                    .putInt(intern(musicBand.getName(), indexes, strings))
+                    .putInt(label.getName() == null ? -1 : intern(label.getName(), indexes, strings))
+                    .put(musicBand.getMusicGenre() == null ? -1 : (byte) musicBand.getMusicGenre().ordinal())
+                    .put((byte) (labelBands == null ? 0 : HAS_LABEL_BANDS))
+                    .put(PADDING);
+        }
+        if (written != count) {
+            throw new IOException("The collection has been changed while writing");
+        }
+
+        int offset = 0;
+        for (byte[] string : strings) {
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(channel, buffer);
+            }
+            buffer.putInt(offset);
+            offset += string.length;
+        }
+        for (byte[] string : strings) {
+            int from = 0;
+            while (from < string.length) {
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+                int length = Math.min(buffer.remaining(), string.length - from);
+                buffer.put(string, from, length);
+                from += length;
+            }
+        }
+        drain(channel, buffer);
+
+        buffer.putInt(strings.size()).putInt(offset).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, 16 + buffer.position());
+        }
+    }
+
+    private static int intern(String string, Map<String, Integer> indexes, List<byte[]> strings) {
+        return indexes.computeIfAbsent(string, s -> {
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static String[] readStrings(FileChannel channel, long stringsOffset, int stringCount, long size)
+            throws IOException {
+        long dataOffset = stringsOffset + 4L * stringCount;
+        long dataSize = size - dataOffset;
+        if (dataSize > Integer.MAX_VALUE) {
+            throw new IOException("The string table of the snapshot is too big");
+        }
+        ByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, stringsOffset, 4L * stringCount);
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, dataSize);
+        String[] strings = new String[stringCount];
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < stringCount; i++) {
+            int from = offsets.getInt(i * 4);
+            int to = i + 1 < stringCount ? offsets.getInt(i * 4 + 4) : (int) dataSize;
+            if (from < 0 || to < from || to > dataSize) {
+                throw new IOException("The string table of the snapshot is damaged");
+            }
+            if (bytes.length < to - from) {
+                bytes = new byte[to - from];
+            }
+            data.get(from, bytes, 0, to - from);
+            strings[i] = new String(bytes, 0, to - from, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static MusicBand readRecord(ByteBuffer records, int at, String[] strings) {
+        int labelName = records.getInt(at + 60);
+        byte genre = records.get(at + 64);
+        boolean hasLabelBands = (records.get(at + 65) & HAS_LABEL_BANDS) != 0;
+        Label label = new Label(labelName < 0 ? null : strings[labelName],
+                hasLabelBands ? records.getLong(at + 32) : null,
+                records.getDouble(at + 40));
+        return new MusicBand(records.getLong(at),
+                strings[records.getInt(at + 56)],
+                new Coordinates(records.getDouble(at + 8), records.getDouble(at + 16)),
+                new Date(records.getLong(at + 24)),
+                records.getInt(at + 48),
+                records.getInt(at + 52),
+                genre < 0 ? null : GENRES[genre],
+                label);
+    }
+}
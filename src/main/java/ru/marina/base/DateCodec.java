@@ -0,0 +1,240 @@
+package ru.marina.base;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The DateCodec class converts the creation dates of the collection file. All methods are thread-safe.
+ * <p>
+ * Dates are written by {@link Date#toString()}, as in {@code Wed Jan 01 12:00:00 MSK 2020}. This exact layout is
+ * read field by field without any allocation except the resulting date; the weekday is ignored, and a zone
+ * abbreviation is resolved once and then taken from a small cache. Abbreviations that cannot be resolved are
+ * not cached, and once the cache is full new ones are resolved every time. Any other text is given to a java.time
+ * formatter. A value made of digits only is taken for milliseconds since the epoch, which is how the dates are written
+ * when the {@code csv.epochMillis} system property is set.
+ */
+public final class DateCodec {
+    private static final String PATTERN = "EEE MMM dd HH:mm:ss zzz yyyy";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN, Locale.ENGLISH);
+    private static final DateTimeFormatter ZONE_FORMATTER = DateTimeFormatter.ofPattern("zzz", Locale.ENGLISH);
+    private static final boolean EPOCH_MILLIS = Boolean.getBoolean("csv.epochMillis");
+    private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+    private static final int MAX_ZONES = 32;
+    private static volatile Zone[] zones = new Zone[0];
+
+    private DateCodec() {
+    }
+
+    /**
+     * Formats a date for the collection file.
+     *
+     * @param date the date
+     * @return the text of {@link Date#toString()}, or the milliseconds since the epoch if {@code csv.epochMillis} is set
+     */
+    public static String format(Date date) {
+        return EPOCH_MILLIS ? Long.toString(date.getTime()) : date.toString();
+    }
+
+    /**
+     * Parses a date.
+     *
+     * @param s the text of the date
+     * @return the parsed date
+     * @throws IllegalArgumentException if the text is not a valid date
+     */
+    public static Date parse(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+        long millis = parseFast(bytes, 0, bytes.length);
+        return new Date(millis != Long.MIN_VALUE ? millis : parseSlow(s));
+    }
+
+    /**
+     * Parses a date written as ASCII bytes.
+     *
+     * @param data the bytes
+     * @param from the index of the first byte of the date
+     * @param to   the index after the last byte of the date
+     * @return the parsed date
+     * @throws IllegalArgumentException if the bytes are not a valid date
+     */
+    public static Date parse(byte[] data, int from, int to) {
+        long millis = parseFast(data, from, to);
+        return new Date(millis != Long.MIN_VALUE
+                ? millis
+                : parseSlow(new String(data, from, to - from, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Parses epoch milliseconds or the exact layout of {@link Date#toString()}.
+     *
+     * @return the milliseconds since the epoch, or {@link Long#MIN_VALUE} if the slow path has to decide
+     */
+    private static long parseFast(byte[] data, int from, int to) {
+        if (from < to && (isDigit(data[from]) || data[from] == '-')) {
+            return parseEpochMillis(data, from, to);
+        }
+        // "EEE MMM dd HH:mm:ss " is 20 bytes, then the zone, a space and the year
+        int zoneEnd = to - 5;
+        if (to - from < 26 || data[from + 3] != ' ' || data[from + 7] != ' ' || data[from + 10] != ' '
+                || data[from + 13] != ':' || data[from + 16] != ':' || data[from + 19] != ' ' || data[zoneEnd] != ' ') {
+            return Long.MIN_VALUE;
+        }
+        int month = month(data, from + 4);
+        int day = twoDigits(data, from + 8);
+        int hour = twoDigits(data, from + 11);
+        int minute = twoDigits(data, from + 14);
+        int second = twoDigits(data, from + 17);
+        int year = twoDigits(data, to - 4) * 100 + twoDigits(data, to - 2);
+        if (month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || year < 0) {
+            return Long.MIN_VALUE;
+        }
+        Zone zone = zone(data, from + 20, zoneEnd);
+        if (zone.id == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute, second);
+            ZonedDateTime dateTime = local.atZone(zone.id);
+            // in the hour repeated at the end of summer time the abbreviation tells which offset was meant
+            dateTime = zone.daylight ? dateTime.withEarlierOffsetAtOverlap() : dateTime.withLaterOffsetAtOverlap();
+            Instant instant = dateTime.toInstant();
+            ZoneRules rules = zone.id.getRules();
+            if (!zone.daylight && rules.isDaylightSavings(instant)) {
+                // a standard time abbreviation on a summer date still means the standard offset
+                instant = local.toInstant(rules.getStandardOffset(instant));
+            }
+            return instant.toEpochMilli();
+        } catch (DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static long parseSlow(String s) {
+        try {
+            return FORMATTER.parse(s, ZonedDateTime::from).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + s, e);
+        }
+    }
+
+    private static long parseEpochMillis(byte[] data, int from, int to) {
+        boolean negative = data[from] == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            if (!isDigit(data[i]) || value > (Long.MAX_VALUE - 9) / 10) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (data[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static int month(byte[] data, int at) {
+        for (int month = 0; month < 12; month++) {
+            int i = month * 3;
+            if (data[at] == MONTHS.charAt(i) && data[at + 1] == MONTHS.charAt(i + 1)
+                    && data[at + 2] == MONTHS.charAt(i + 2)) {
+                return month + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int twoDigits(byte[] data, int at) {
+        return isDigit(data[at]) && isDigit(data[at + 1]) ? (data[at] - '0') * 10 + (data[at + 1] - '0') : -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static Zone zone(byte[] data, int from, int to) {
+        // the abbreviations of a collection file are few, they are looked up without building a string
+        for (Zone zone : zones) {
+            if (zone.matches(data, from, to)) {
+                return zone;
+            }
+        }
+        return addZone(new String(data, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+
+    private static synchronized Zone addZone(String name) {
+        for (Zone zone : zones) {
+            if (zone.name.equals(name)) {
+                return zone;
+            }
+        }
+        Zone zone = resolveZone(name);
+        if (zone.id == null || zones.length == MAX_ZONES) {
+            return zone;
+        }
+        Zone[] next = Arrays.copyOf(zones, zones.length + 1);
+        next[zones.length] = zone;
+        zones = next;
+        return zone;
+    }
+
+    /**
+     * Finds the zone of an abbreviation. The abbreviations of the default time zone are checked first,
+     * since {@link Date#toString()} writes the dates in it.
+     */
+    private static Zone resolveZone(String name) {
+        TimeZone local = TimeZone.getDefault();
+        if (name.equals(local.getDisplayName(false, TimeZone.SHORT, Locale.US))) {
+            return new Zone(name, local.toZoneId(), false);
+        }
+        if (name.equals(local.getDisplayName(true, TimeZone.SHORT, Locale.US))) {
+            return new Zone(name, local.toZoneId(), true);
+        }
+        try {
+            return new Zone(name, ZoneId.of(name), false);
+        } catch (DateTimeException e) {
+            // not a zone id, such as GMT+03:00, try it as an abbreviation
+        }
+        try {
+            ZoneId id = ZONE_FORMATTER.parse(name, ZoneId::from);
+            boolean daylight = name.equals(TimeZone.getTimeZone(id).getDisplayName(true, TimeZone.SHORT, Locale.US));
+            return new Zone(name, id, daylight);
+        } catch (DateTimeException e) {
+            return new Zone(name, null, false);
+        }
+    }
+
+    private static final class Zone {
+        private final String name;
+        private final ZoneId id;
+        private final boolean daylight;
+
+        private Zone(String name, ZoneId id, boolean daylight) {
+            this.name = name;
+            this.id = id;
+            this.daylight = daylight;
+        }
+
+        private boolean matches(byte[] data, int from, int to) {
+            if (name.length() != to - from) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (name.charAt(i) != data[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
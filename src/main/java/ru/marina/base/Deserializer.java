@@ -1,44 +1,38 @@
 package ru.marina.base;
 
-import com.opencsv.CSVReader;
-import com.opencsv.bean.CsvToBean;
-import com.opencsv.bean.CsvToBeanBuilder;
 import ru.marina.model.MusicBand;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
 
 /**
- * The Deserializer class provides a method to deserialize a CSV file into a HashSet of MusicBand objects.
+ * The Deserializer class provides a method to read the music bands from a CSV file.
+ * The file is parsed as a stream by the MusicBandCsvParser, every music band is passed on as soon as it is read.
  */
 public class Deserializer {
 
     /**
-     * Deserializes a CSV file into a HashSet of MusicBand objects.
+     * Reads the music bands from a CSV file and passes each of them to the sink.
+     * Invalid records are skipped.
      *
      * @param fileName the name of the CSV file to deserialize
-     * @return a HashSet of MusicBand objects representing the data in the CSV file
-     * @throws IOException if an I/O error occurs while reading the file
+     * @param sink     the consumer of the music bands
+     * @return the number of music bands read from the file
+     * @throws IOException if an I/O error occurs while reading the file or its header is invalid
      */
-    public static HashSet<MusicBand> deserialize(String fileName) throws IOException {
-        HashSet<MusicBand> queue = new HashSet<>();
-
-        try (BufferedReader reader = Files.newBufferedReader(Path.of(fileName))) {
-            CSVReader csvReader = new CSVReader(reader);
-            CsvToBean<MusicBand> csv = new CsvToBeanBuilder<MusicBand>(csvReader).withType(MusicBand.class).build();
-            queue = new HashSet<>(csv.parse());
-
-            System.out.println(queue.size() + " item(s) loaded from file " + fileName);
-        } catch (RuntimeException e){
-            System.out.println(e.getMessage());
-        } catch (Throwable e){
-            System.out.println("An error occurred while reading file. Data not loaded.");
+    public static int deserialize(String fileName, Consumer<MusicBand> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            MusicBandCsvParser parser = MusicBandCsvParser.parse(channel, sink);
+            int loaded = parser == null ? 0 : parser.getParsed();
+            System.out.println(loaded + " item(s) loaded from file " + fileName);
+            if (parser != null && parser.getSkipped() > 0) {
+                System.out.println(parser.getSkipped() + " invalid item(s) skipped");
+            }
+            return loaded;
         }
-
-        return queue;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package ru.marina.base;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The FrameReader class collects bytes read from a channel and cuts them into frames.
+ * It reads the length header first and refuses a frame longer than its limit before the body arrives.
+ * The buffer grows only when it is full of received bytes, never to the length the header announces,
+ * so a header alone does not make it allocate memory. The body is handed out only when it is complete.
+ * The buffer is a direct buffer that is reused for all frames of the connection.
+ */
+public class FrameReader {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final int maxFrameSize;
+    private ByteBuffer buffer;
+    private int start;
+
+    /**
+     * Constructs a FrameReader with the default initial buffer size that accepts frames up to
+     * {@link Frames#MAX_FRAME_SIZE}.
+     */
+    public FrameReader() {
+        this(Frames.MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Constructs a FrameReader with the default initial buffer size.
+     *
+     * @param maxFrameSize the biggest length of a frame body in bytes
+     */
+    public FrameReader(int maxFrameSize) {
+        this(Math.min(INITIAL_BUFFER_SIZE, Frames.HEADER_SIZE + maxFrameSize), maxFrameSize);
+    }
+
+    /**
+     * Constructs a FrameReader with the specified initial buffer size.
+     *
+     * @param initialCapacity the initial buffer size in bytes
+     * @param maxFrameSize    the biggest length of a frame body in bytes
+     */
+    public FrameReader(int initialCapacity, int maxFrameSize) {
+        this.buffer = ByteBuffer.allocateDirect(initialCapacity);
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Reads the available bytes from the channel into the buffer.
+     * Bodies returned by {@link #nextFrame()} before this call become invalid.
+     *
+     * @param channel the channel to read from
+     * @return the number of bytes read
+     * @throws IOException if the other side has closed the connection or the read fails
+     */
+    public int read(ReadableByteChannel channel) throws IOException {
+        if (start > 0) {
+            buffer.flip();
+            buffer.position(start);
+            buffer.compact();
+            start = 0;
+        }
+        if (!buffer.hasRemaining()) {
+            grow();
+        }
+
+        int bytesRead = channel.read(buffer);
+        if (bytesRead == -1) {
+            throw new EOFException("Connection closed");
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Takes the next complete frame from the received bytes.
+     * The returned buffer is a view of the internal buffer and stays valid until the next read.
+     *
+     * @return the frame body, or null if the frame has not been fully received yet
+     * @throws IOException if the frame header is invalid or announces a frame longer than the limit
+     */
+    public ByteBuffer nextFrame() throws IOException {
+        int available = buffer.position() - start;
+        if (available < Frames.HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        Frames.checkLength(length, maxFrameSize);
+        int frameSize = Frames.HEADER_SIZE + length;
+        if (available < frameSize) {
+            return null;
+        }
+
+        ByteBuffer body = buffer.slice(start + Frames.HEADER_SIZE, length);
+        start += frameSize;
+        return body;
+    }
+
+    /**
+     * Drops all received bytes, for example after the connection has been closed.
+     */
+    public void clear() {
+        buffer.clear();
+        start = 0;
+    }
+
+    /**
+     * Doubles the buffer, up to the size of the longest allowed frame.
+     */
+    private void grow() {
+        int capacity = (int) Math.min(2L * buffer.capacity(), Frames.HEADER_SIZE + (long) maxFrameSize);
+        ByteBuffer bigger = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.marina.base;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The Frames class provides methods to pack messages into length-prefixed frames.
+ * Every frame starts with a 4-byte length header followed by the message encoded with BinaryCodec,
+ * so the receiving side always knows how many bytes it has to wait for.
+ */
+public class Frames {
+    public static final int HEADER_SIZE = Integer.BYTES;
+    public static final int MAX_FRAME_SIZE = 256 * 1024 * 1024;
+    /**
+     * Requests hold a command line and at most one band, so a few kilobytes are enough;
+     * the server refuses bigger frames before it buffers them.
+     */
+    public static final int MAX_REQUEST_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * Encodes a request into a frame ready to be written to a channel.
+     *
+     * @param request the request to send
+     * @return a buffer containing the length header and the encoded request
+     */
+    public static ByteBuffer encode(Request request) {
+        int size = BinaryCodec.sizeOf(request);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + size);
+        frame.putInt(size);
+        BinaryCodec.write(frame, request);
+        return frame.flip();
+    }
+
+    /**
+     * Encodes a response into a frame ready to be written to a channel.
+     *
+     * @param response the response to send
+     * @return a buffer containing the length header and the encoded response
+     */
+    public static ByteBuffer encode(Response response) {
+        int size = BinaryCodec.sizeOf(response);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + size);
+        frame.putInt(size);
+        BinaryCodec.write(frame, response);
+        return frame.flip();
+    }
+
+    /**
+     * Decodes the body of a request frame.
+     *
+     * @param body the frame body without the length header
+     * @return the decoded request
+     * @throws IOException if the body is corrupted
+     */
+    public static Request decodeRequest(ByteBuffer body) throws IOException {
+        try {
+            return BinaryCodec.readRequest(body);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted request frame", e);
+        }
+    }
+
+    /**
+     * Decodes the body of a response frame.
+     *
+     * @param body the frame body without the length header
+     * @return the decoded response
+     * @throws IOException if the body is corrupted
+     */
+    public static Response decodeResponse(ByteBuffer body) throws IOException {
+        try {
+            return BinaryCodec.readResponse(body);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted response frame", e);
+        }
+    }
+
+    /**
+     * Checks the length read from a frame header.
+     *
+     * @param length the length of the frame body
+     * @throws IOException if the length is negative or too big
+     */
+    public static void checkLength(int length) throws IOException {
+        checkLength(length, MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Checks the length read from a frame header against a limit.
+     *
+     * @param length        the length of the frame body
+     * @param maxFrameSize  the biggest allowed length
+     * @throws IOException if the length is negative or bigger than the limit
+     */
+    public static void checkLength(int length, int maxFrameSize) throws IOException {
+        if (length < 0 || length > maxFrameSize) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+}
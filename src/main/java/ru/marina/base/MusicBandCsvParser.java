@@ -0,0 +1,425 @@
+package ru.marina.base;
+
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The MusicBandCsvParser class reads music bands from CSV in the format written by the Serializer.
+ * It works on raw bytes: a record is split into fields in place, numbers are parsed straight from
+ * the bytes and only the values that end up in the music band become objects, so a file of any size
+ * is read through one buffer without keeping its rows in memory.
+ * <p>
+ * Columns are matched by the header, in any order and case. Quoted and unquoted values are accepted,
+ * a quote inside a quoted value is doubled. A record that does not make a valid music band is skipped
+ * with a warning instead of failing the whole file.
+ * <p>
+ * A parser keeps the fields of the current record in its own arrays, so it must be used by one thread at a time.
+ */
+public final class MusicBandCsvParser {
+    private static final int ALBUMS_COUNT = 0;
+    private static final int COORDINATES_X = 1;
+    private static final int COORDINATES_Y = 2;
+    private static final int CREATION_DATE = 3;
+    private static final int GENRE = 4;
+    private static final int ID = 5;
+    private static final int LABEL_BANDS = 6;
+    private static final int LABEL_NAME = 7;
+    private static final int LABEL_SALES = 8;
+    private static final int NAME = 9;
+    private static final int NUMBER_OF_PARTICIPANTS = 10;
+    private static final String[] COLUMNS = {
+            "ALBUMSCOUNT", "COORDINATES_X", "COORDINATES_Y", "CREATION_DATE", "GENRE",
+            "ID", "LABEL_BANDS", "LABEL_NAME", "LABEL_SALES", "NAME", "NUMBEROFPARTICIPANTS"
+    };
+    private static final boolean[] OPTIONAL = new boolean[COLUMNS.length];
+    static {
+        OPTIONAL[LABEL_BANDS] = true;
+        OPTIONAL[LABEL_NAME] = true;
+    }
+
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+    private static final byte[][] GENRE_NAMES = new byte[GENRES.length][];
+    static {
+        for (int i = 0; i < GENRES.length; i++) {
+            GENRE_NAMES[i] = GENRES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final int MAX_COLUMNS = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_WARNINGS = 10;
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private static final Logger logger = Logger.getLogger(MusicBandCsvParser.class.getName());
+
+    private final int[] fieldOfColumn;
+    private final int[] starts;
+    private final int[] ends;
+    private final boolean[] escaped;
+    private final int[] fieldStarts = new int[COLUMNS.length];
+    private final int[] fieldEnds = new int[COLUMNS.length];
+    private final boolean[] fieldEscaped = new boolean[COLUMNS.length];
+    private int parsed;
+    private int skipped;
+
+    private MusicBandCsvParser(int[] fieldOfColumn) {
+        this.fieldOfColumn = fieldOfColumn;
+        this.starts = new int[fieldOfColumn.length];
+        this.ends = new int[fieldOfColumn.length];
+        this.escaped = new boolean[fieldOfColumn.length];
+    }
+
+    /**
+     * Creates a parser for the records that follow the given header.
+     *
+     * @param data the bytes holding the header
+     * @param from the index of the first byte of the header
+     * @param end  the index after the last byte of the header, without the line break
+     * @return the parser
+     * @throws IOException if the header is malformed or a required column is missing
+     */
+    public static MusicBandCsvParser forHeader(byte[] data, int from, int end) throws IOException {
+        if (end - from >= BOM.length && Arrays.equals(data, from, from + BOM.length, BOM, 0, BOM.length)) {
+            from += BOM.length;
+        }
+        int[] starts = new int[MAX_COLUMNS];
+        int[] ends = new int[MAX_COLUMNS];
+        boolean[] escaped = new boolean[MAX_COLUMNS];
+        int count = split(data, from, trimLineEnd(data, from, end), starts, ends, escaped);
+        if (count < 0 || count > MAX_COLUMNS) {
+            throw new IOException("Malformed CSV header");
+        }
+
+        int[] fieldOfColumn = new int[count];
+        boolean[] present = new boolean[COLUMNS.length];
+        for (int column = 0; column < count; column++) {
+            String name = text(data, starts[column], ends[column], escaped[column]).trim().toUpperCase(Locale.ROOT);
+            fieldOfColumn[column] = Arrays.asList(COLUMNS).indexOf(name);
+            if (fieldOfColumn[column] >= 0) {
+                if (present[fieldOfColumn[column]]) {
+                    throw new IOException("Duplicate CSV column " + name);
+                }
+                present[fieldOfColumn[column]] = true;
+            }
+        }
+        for (int field = 0; field < COLUMNS.length; field++) {
+            if (!present[field] && !OPTIONAL[field]) {
+                throw new IOException("Missing CSV column " + COLUMNS[field]);
+            }
+        }
+        return new MusicBandCsvParser(fieldOfColumn);
+    }
+
+    /**
+     * Creates a parser with the same columns as this one, to parse records on another thread.
+     *
+     * @return the new parser
+     */
+    public MusicBandCsvParser copy() {
+        return new MusicBandCsvParser(fieldOfColumn);
+    }
+
+    /**
+     * Reads the whole input, header first, and passes every valid music band to the sink.
+     *
+     * @param channel the input
+     * @param sink    the consumer of the music bands
+     * @return the parser that has read the input, holding the counts of parsed and skipped records,
+     * or null if the input is empty
+     * @throws IOException if the input cannot be read or its header is invalid
+     */
+    public static MusicBandCsvParser parse(ReadableByteChannel channel, Consumer<MusicBand> sink) throws IOException {
+        byte[] data = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        MusicBandCsvParser parser = null;
+        int start = 0;
+        boolean endOfInput = false;
+        while (true) {
+            int limit = buffer.position();
+            int end;
+            while ((end = findRecordEnd(data, start, limit)) >= 0) {
+                if (parser == null) {
+                    parser = forHeader(data, start, end);
+                } else {
+                    parser.parseRecord(data, start, end, sink);
+                }
+                start = end + 1;
+            }
+            if (endOfInput) {
+                if (start < limit) {
+                    if (parser == null) {
+                        parser = forHeader(data, start, limit);
+                    } else {
+                        parser.parseRecord(data, start, limit, sink);
+                    }
+                }
+                return parser;
+            }
+
+            // keep the incomplete record and read more bytes after it
+            int remaining = limit - start;
+            if (start > 0) {
+                System.arraycopy(data, start, data, 0, remaining);
+                start = 0;
+            }
+            if (remaining == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+                buffer = ByteBuffer.wrap(data);
+            }
+            buffer.position(remaining);
+            endOfInput = channel.read(buffer) < 0;
+        }
+    }
+
+    /**
+     * Finds the line break that ends the record starting at the given index.
+     * Line breaks inside quoted values do not end the record.
+     *
+     * @param data the bytes
+     * @param from the index of the first byte of the record
+     * @param to   the index after the last available byte
+     * @return the index of the line break, or -1 if the record is not complete
+     */
+    public static int findRecordEnd(byte[] data, int from, int to) {
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses one record and passes the music band to the sink.
+     * An empty line is ignored, an invalid record is counted and skipped.
+     *
+     * @param data the bytes
+     * @param from the index of the first byte of the record
+     * @param end  the index after the last byte of the record, without the line break
+     * @param sink the consumer of the music band
+     * @return true if a music band has been read
+     */
+    public boolean parseRecord(byte[] data, int from, int end, Consumer<MusicBand> sink) {
+        end = trimLineEnd(data, from, end);
+        if (from == end) {
+            return false;
+        }
+        MusicBand musicBand;
+        try {
+            musicBand = toMusicBand(data, from, end);
+        } catch (IllegalArgumentException e) {
+            skip(data, from, end, e.getMessage());
+            return false;
+        }
+        parsed++;
+        sink.accept(musicBand);
+        return true;
+    }
+
+    public int getParsed() {
+        return parsed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    private MusicBand toMusicBand(byte[] data, int from, int end) {
+        int count = split(data, from, end, starts, ends, escaped);
+        if (count != fieldOfColumn.length) {
+            throw new IllegalArgumentException(count < 0
+                    ? "malformed quotes"
+                    : "expected " + fieldOfColumn.length + " values, found " + count);
+        }
+        Arrays.fill(fieldStarts, -1);
+        for (int column = 0; column < count; column++) {
+            int field = fieldOfColumn[column];
+            if (field >= 0) {
+                fieldStarts[field] = starts[column];
+                fieldEnds[field] = ends[column];
+                fieldEscaped[field] = escaped[column];
+            }
+        }
+
+        Coordinates coordinates = new Coordinates(
+                parseDouble(data, COORDINATES_X),
+                parseDouble(data, COORDINATES_Y));
+        Label label = new Label(
+                fieldStarts[LABEL_NAME] < 0 ? null : string(data, LABEL_NAME),
+                isEmpty(LABEL_BANDS) ? null : parseLong(data, LABEL_BANDS),
+                parseDouble(data, LABEL_SALES));
+        return new MusicBand(
+                parseLong(data, ID),
+                string(data, NAME),
+                coordinates,
+                parseDate(data),
+                parseInt(data, NUMBER_OF_PARTICIPANTS),
+                parseInt(data, ALBUMS_COUNT),
+                parseGenre(data),
+                label);
+    }
+
+    private void skip(byte[] data, int from, int end, String reason) {
+        skipped++;
+        if (skipped <= MAX_WARNINGS) {
+            String record = new String(data, from, Math.min(end - from, 200), StandardCharsets.UTF_8);
+            logger.warning("Skipping invalid record (" + reason + "): " + record);
+        } else if (skipped == MAX_WARNINGS + 1) {
+            logger.warning("More invalid records are skipped without a warning");
+        }
+    }
+
+    private boolean isEmpty(int field) {
+        return fieldStarts[field] < 0 || fieldStarts[field] == fieldEnds[field];
+    }
+
+    private String string(byte[] data, int field) {
+        return text(data, fieldStarts[field], fieldEnds[field], fieldEscaped[field]);
+    }
+
+    private long parseLong(byte[] data, int field) {
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (i == end) {
+            throw new IllegalArgumentException(COLUMNS[field] + " is empty");
+        }
+        boolean negative = data[i] == '-';
+        if (negative || data[i] == '+') {
+            i++;
+        }
+        if (i == end) {
+            throw new IllegalArgumentException(COLUMNS[field] + " is not a number");
+        }
+        long value = 0;
+        try {
+            for (; i < end; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new IllegalArgumentException(COLUMNS[field] + " is not a number");
+                }
+                value = Math.addExact(Math.multiplyExact(value, 10), negative ? -digit : digit);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(COLUMNS[field] + " is out of range");
+        }
+        return value;
+    }
+
+    private Date parseDate(byte[] data) {
+        if (fieldEscaped[CREATION_DATE]) {
+            return DateCodec.parse(string(data, CREATION_DATE));
+        }
+        return DateCodec.parse(data, fieldStarts[CREATION_DATE], fieldEnds[CREATION_DATE]);
+    }
+
+    private int parseInt(byte[] data, int field) {
+        long value = parseLong(data, field);
+        if (value != (int) value) {
+            throw new IllegalArgumentException(COLUMNS[field] + " is out of range");
+        }
+        return (int) value;
+    }
+
+    private double parseDouble(byte[] data, int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (start == end) {
+            throw new IllegalArgumentException(COLUMNS[field] + " is empty");
+        }
+        try {
+            return Double.parseDouble(new String(data, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(COLUMNS[field] + " is not a number");
+        }
+    }
+
+    private MusicGenre parseGenre(byte[] data) {
+        int start = fieldStarts[GENRE];
+        int end = fieldEnds[GENRE];
+        if (start == end) {
+            return null;
+        }
+        for (int i = 0; i < GENRES.length; i++) {
+            if (Arrays.equals(data, start, end, GENRE_NAMES[i], 0, GENRE_NAMES[i].length)) {
+                return GENRES[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown genre " + new String(data, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    private static String text(byte[] data, int start, int end, boolean escaped) {
+        String value = new String(data, start, end - start, StandardCharsets.UTF_8);
+        return escaped ? value.replace("\"\"", "\"") : value;
+    }
+
+    private static int trimLineEnd(byte[] data, int from, int end) {
+        return end > from && data[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Splits a record into values. The bounds of a quoted value exclude the quotes.
+     *
+     * @return the number of values, -1 if the quotes are malformed, or more than the arrays hold if there are too many values
+     */
+    private static int split(byte[] data, int from, int end, int[] starts, int[] ends, boolean[] escaped) {
+        int count = 0;
+        int i = from;
+        while (true) {
+            if (count == starts.length) {
+                return count + 1;
+            }
+            boolean hasQuotes = false;
+            if (i < end && data[i] == '"') {
+                i++;
+                starts[count] = i;
+                while (true) {
+                    if (i >= end) {
+                        return -1;
+                    }
+                    if (data[i] == '"') {
+                        if (i + 1 < end && data[i + 1] == '"') {
+                            hasQuotes = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                ends[count] = i;
+                i++;
+                if (i < end && data[i] != ',') {
+                    return -1;
+                }
+            } else {
+                starts[count] = i;
+                while (i < end && data[i] != ',') {
+                    i++;
+                }
+                ends[count] = i;
+            }
+            escaped[count] = hasQuotes;
+            count++;
+            if (i >= end) {
+                return count;
+            }
+            i++;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package ru.marina.base;
+
+import ru.marina.model.MusicBand;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ParallelCsvLoader class reads a large CSV file of music bands on all cores.
+ * <p>
+ * The file is cut into chunks of a fixed size, which do not start on record boundaries. First every chunk
+ * is scanned in parallel for the parity of its quotes and for its first line break outside and inside quotes.
+ * Going through the chunks in order, the quote state at the start of each chunk is then known, and with it
+ * the line break where its first whole record starts. Line breaks inside quoted values are never taken for
+ * record boundaries. Finally the ranges between the boundaries are parsed in parallel, each by its own
+ * {@link MusicBandCsvParser}, and the music bands are returned chunk by chunk in file order.
+ */
+public class ParallelCsvLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int HEADER_READ_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * The Result class holds the music bands read from the file and the time each phase took.
+     */
+    public static final class Result {
+        private final List<List<MusicBand>> chunks;
+        private final int parsed;
+        private final int skipped;
+        private final long scanMillis;
+        private final long parseMillis;
+
+        private Result(List<List<MusicBand>> chunks, int parsed, int skipped, long scanMillis, long parseMillis) {
+            this.chunks = chunks;
+            this.parsed = parsed;
+            this.skipped = skipped;
+            this.scanMillis = scanMillis;
+            this.parseMillis = parseMillis;
+        }
+
+        /**
+         * Returns the music bands read from the file, one list per chunk, in file order.
+         *
+         * @return the music bands
+         */
+        public List<List<MusicBand>> getChunks() {
+            return chunks;
+        }
+
+        public int getParsed() {
+            return parsed;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Returns the time of reading the file to find the record boundaries.
+         *
+         * @return the time in milliseconds
+         */
+        public long getScanMillis() {
+            return scanMillis;
+        }
+
+        /**
+         * Returns the time of parsing the records.
+         *
+         * @return the time in milliseconds
+         */
+        public long getParseMillis() {
+            return parseMillis;
+        }
+    }
+
+    /**
+     * Constructs a ParallelCsvLoader that uses the common fork-join pool.
+     *
+     * @param chunkSize the size of the chunks the file is cut into, in bytes
+     */
+    public ParallelCsvLoader(int chunkSize) {
+        this(chunkSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a ParallelCsvLoader.
+     *
+     * @param chunkSize the size of the chunks the file is cut into, in bytes
+     * @param pool      the pool that scans and parses the chunks
+     */
+    public ParallelCsvLoader(int chunkSize, ForkJoinPool pool) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Reads the music bands from the file.
+     *
+     * @param path the path of the CSV file
+     * @return the music bands and the timings
+     * @throws IOException if the file cannot be read or its header is invalid
+     */
+    public Result load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = System.nanoTime();
+
+            byte[] headerBytes = readHeader(channel, size);
+            if (headerBytes == null) {
+                return new Result(List.of(), 0, 0, 0, 0);
+            }
+            int headerEnd = MusicBandCsvParser.findRecordEnd(headerBytes, 0, headerBytes.length);
+            MusicBandCsvParser header = MusicBandCsvParser.forHeader(headerBytes, 0,
+                    headerEnd < 0 ? headerBytes.length : headerEnd);
+            long dataStart = headerEnd < 0 ? size : headerEnd + 1;
+
+            long[] boundaries = findBoundaries(channel, dataStart, size);
+            long scanned = System.nanoTime();
+
+            List<Callable<ChunkResult>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                long from = boundaries[i];
+                long to = boundaries[i + 1];
+                tasks.add(() -> parseRange(channel, from, to, header.copy()));
+            }
+            List<List<MusicBand>> chunks = new ArrayList<>(tasks.size());
+            int parsed = 0;
+            int skipped = 0;
+            for (ChunkResult chunk : invokeAll(tasks)) {
+                chunks.add(chunk.musicBands);
+                parsed += chunk.parsed;
+                skipped += chunk.skipped;
+            }
+            long done = System.nanoTime();
+
+            return new Result(chunks, parsed, skipped,
+                    TimeUnit.NANOSECONDS.toMillis(scanned - start),
+                    TimeUnit.NANOSECONDS.toMillis(done - scanned));
+        }
+    }
+
+    /**
+     * Finds the starts of the ranges to parse: the data start, the first record start in every chunk
+     * that has one, and the end of the file.
+     */
+    private long[] findBoundaries(FileChannel channel, long dataStart, long size) throws IOException {
+        int chunkCount = (int) Math.max(1, (size - dataStart + chunkSize - 1) / chunkSize);
+        List<Callable<QuoteScan>> tasks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            long from = dataStart + (long) i * chunkSize;
+            long to = Math.min(size, from + chunkSize);
+            tasks.add(() -> scanQuotes(channel, from, to));
+        }
+        List<QuoteScan> scans = invokeAll(tasks);
+
+        long[] boundaries = new long[chunkCount + 1];
+        int count = 0;
+        boundaries[count++] = dataStart;
+        boolean quoted = scans.get(0).oddQuotes;
+        for (int i = 1; i < chunkCount; i++) {
+            QuoteScan scan = scans.get(i);
+            long lineBreak = quoted ? scan.firstBreakInside : scan.firstBreakOutside;
+            if (lineBreak >= 0) {
+                boundaries[count++] = lineBreak + 1;
+            }
+            quoted ^= scan.oddQuotes;
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Counts the quotes of a chunk and finds its first line break for both quote states the chunk may start in.
+     */
+    private static QuoteScan scanQuotes(FileChannel channel, long from, long to) throws IOException {
+        byte[] data = read(channel, from, to);
+        boolean quoted = false;
+        long firstBreakOutside = -1;
+        long firstBreakInside = -1;
+        for (int i = 0; i < data.length; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n') {
+                // "quoted" is relative: false means the quote state is the same as at the start of the chunk
+                if (!quoted && firstBreakOutside < 0) {
+                    firstBreakOutside = from + i;
+                } else if (quoted && firstBreakInside < 0) {
+                    firstBreakInside = from + i;
+                }
+            }
+        }
+        return new QuoteScan(quoted, firstBreakOutside, firstBreakInside);
+    }
+
+    private static ChunkResult parseRange(FileChannel channel, long from, long to,
+                                          MusicBandCsvParser parser) throws IOException {
+        List<MusicBand> musicBands = new ArrayList<>();
+        if (to - from > Integer.MAX_VALUE - 8) {
+            throw new IOException("A record of the file is too big");
+        }
+        byte[] data = read(channel, from, to);
+        int start = 0;
+        int end;
+        while ((end = MusicBandCsvParser.findRecordEnd(data, start, data.length)) >= 0) {
+            parser.parseRecord(data, start, end, musicBands::add);
+            start = end + 1;
+        }
+        if (start < data.length) {
+            parser.parseRecord(data, start, data.length, musicBands::add);
+        }
+        return new ChunkResult(musicBands, parser.getParsed(), parser.getSkipped());
+    }
+
+    private static byte[] readHeader(FileChannel channel, long size) throws IOException {
+        if (size == 0) {
+            return null;
+        }
+        long to = Math.min(size, HEADER_READ_SIZE);
+        byte[] data = read(channel, 0, to);
+        while (MusicBandCsvParser.findRecordEnd(data, 0, data.length) < 0 && to < size) {
+            to = Math.min(size, to * 2);
+            data = read(channel, 0, to);
+        }
+        return data;
+    }
+
+    private static byte[] read(FileChannel channel, long from, long to) throws IOException {
+        byte[] data = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                throw new EOFException("The file has been truncated while reading");
+            }
+        }
+        return data;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the file", e);
+        }
+        return results;
+    }
+
+    private static final class QuoteScan {
+        private final boolean oddQuotes;
+        private final long firstBreakOutside;
+        private final long firstBreakInside;
+
+        private QuoteScan(boolean oddQuotes, long firstBreakOutside, long firstBreakInside) {
+            this.oddQuotes = oddQuotes;
+            this.firstBreakOutside = firstBreakOutside;
+            this.firstBreakInside = firstBreakInside;
+        }
+    }
+
+    private static final class ChunkResult {
+        private final List<MusicBand> musicBands;
+        private final int parsed;
+        private final int skipped;
+
+        private ChunkResult(List<MusicBand> musicBands, int parsed, int skipped) {
+            this.musicBands = musicBands;
+            this.parsed = parsed;
+            this.skipped = skipped;
+        }
+    }
+}
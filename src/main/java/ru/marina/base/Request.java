@@ -5,6 +5,7 @@ import ru.marina.model.MusicBand;
 import java.io.Serializable;
 
 public class Request implements Serializable {
+    private long id;
     private final String[] input;
     private MusicBand musicBand;
 
@@ -17,6 +18,14 @@ public class Request implements Serializable {
         this.musicBand = musicBand;
     }
 
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String[] getInput() {
         return input;
     }
@@ -1,13 +1,21 @@
 package ru.marina.base;
 
+import ru.marina.model.Label;
 import ru.marina.model.MusicBand;
 import ru.marina.model.Status;
 import java.io.Serializable;
+import java.util.List;
 
 public class Response implements Serializable {
+    private long requestId;
     private final Status status;
     private final String message;
     private MusicBand musicBand;
+    private boolean partial;
+    private List<MusicBand> musicBands = List.of();
+    private List<Label> labels = List.of();
+    private List<Scalar> scalars = List.of();
+    private List<List<Scalar>> records = List.of();
 
     public Response(Status status, String message) {
         this.status = status;
@@ -20,6 +28,27 @@ public class Response implements Serializable {
         this.musicBand = musicBand;
     }
 
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Checks whether the response is one of the chunks streamed before the final response to the same request.
+     *
+     * @return true if more responses to the request follow
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
     public Status getStatus() {
         return status;
     }
@@ -31,4 +60,57 @@ public class Response implements Serializable {
     public String getMessage() {
         return message;
     }
+
+    /**
+     * Returns the music bands the command has found, in the order they are to be shown.
+     *
+     * @return the music bands, empty if the response has none
+     */
+    public List<MusicBand> getMusicBands() {
+        return musicBands;
+    }
+
+    public void setMusicBands(List<MusicBand> musicBands) {
+        this.musicBands = musicBands;
+    }
+
+    /**
+     * Returns the labels the command has found.
+     *
+     * @return the labels, empty if the response has none
+     */
+    public List<Label> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(List<Label> labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Returns the named values the command has computed, in the order they are to be shown.
+     *
+     * @return the values, empty if the response has none
+     */
+    public List<Scalar> getScalars() {
+        return scalars;
+    }
+
+    public void setScalars(List<Scalar> scalars) {
+        this.scalars = scalars;
+    }
+
+    /**
+     * Returns the records the command has found, every one of them made of the named values of its fields,
+     * in the order they are to be shown.
+     *
+     * @return the records, empty if the response has none
+     */
+    public List<List<Scalar>> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<List<Scalar>> records) {
+        this.records = records;
+    }
 }
@@ -0,0 +1,81 @@
+package ru.marina.base;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The Scalar class is a single named value of a response, such as the size of the collection or a sum.
+ * The value keeps its type, so the client decides how to show it.
+ */
+public final class Scalar implements Serializable {
+    /**
+     * The type of the value.
+     */
+    public enum Kind {
+        LONG,
+        DOUBLE,
+        DATE,
+        TEXT
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final Kind kind;
+    private final long longValue;
+    private final double doubleValue;
+    private final String text;
+
+    private Scalar(String name, Kind kind, long longValue, double doubleValue, String text) {
+        this.name = name;
+        this.kind = kind;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.text = text;
+    }
+
+    public static Scalar of(String name, long value) {
+        return new Scalar(name, Kind.LONG, value, 0, null);
+    }
+
+    public static Scalar of(String name, double value) {
+        return new Scalar(name, Kind.DOUBLE, 0, value, null);
+    }
+
+    public static Scalar of(String name, Date value) {
+        return new Scalar(name, Kind.DATE, value.getTime(), 0, null);
+    }
+
+    public static Scalar of(String name, String value) {
+        return new Scalar(name, Kind.TEXT, 0, 0, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the value of a LONG scalar, or the milliseconds since the epoch of a DATE scalar.
+     *
+     * @return the value
+     */
+    public long getLong() {
+        return longValue;
+    }
+
+    public double getDouble() {
+        return doubleValue;
+    }
+
+    public Date getDate() {
+        return new Date(longValue);
+    }
+
+    public String getText() {
+        return text;
+    }
+}
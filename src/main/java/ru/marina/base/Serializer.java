@@ -1,52 +1,185 @@
 package ru.marina.base;
 
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
 import ru.marina.model.MusicBand;
 import javax.naming.NoPermissionException;
-import java.io.BufferedOutputStream;
-import java.io.FileOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.logging.Logger;
 
 
 /**
- * The Serializer class provides methods to serialize a HashSet of MusicBand objects and write them to a file.
- * It uses the OpenCSV library to convert the MusicBand objects to CSV format and writes them to the file.
+ * The Serializer class provides methods to serialize a collection of MusicBand objects and write them to a file.
+ * The CSV is written by hand in the format of the existing collection files: the upper-case column
+ * names in alphabetical order and every value in quotes, so the file is read back by the Deserializer as before.
+ * <p>
+ * The file is never rewritten in place. The collection is written to a temporary file next to it,
+ * forced to disk and then moved over the old file in one atomic step, so a crash leaves either
+ * the old file or the new one, never a half-written file.
  */
 public class Serializer {
-    public static void serialize(HashSet<MusicBand> musicBands,
+    private static final String HEADER = "\"ALBUMSCOUNT\",\"COORDINATES_X\",\"COORDINATES_Y\",\"CREATION_DATE\",\"GENRE\","
+            + "\"ID\",\"LABEL_BANDS\",\"LABEL_NAME\",\"LABEL_SALES\",\"NAME\",\"NUMBEROFPARTICIPANTS\"";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger logger = Logger.getLogger(Serializer.class.getName());
+
+    /**
+     * The ChannelWriter interface writes the content of a file.
+     */
+    @FunctionalInterface
+    interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Writes the music bands to the file, replacing it atomically.
+     *
+     * @param musicBands the music bands to write
+     * @param fileName   the name of the file
+     * @return the size of the written file in bytes
+     * @throws IOException           if the file cannot be written
+     * @throws NoPermissionException if the file or its directory is not writable
+     */
+    public static long serialize(Collection<MusicBand> musicBands,
                                  String fileName                ) throws IOException,
                                                                          NoPermissionException
     {
-        Path path = Paths.get(fileName);
+        return writeAtomically(Paths.get(fileName), channel -> {
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writeCsv(writer, musicBands);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Writes a file through a temporary file next to it, forces it to disk and moves it over the old file.
+     *
+     * @param path   the path of the file
+     * @param writer the writer of the content
+     * @return the size of the written file in bytes
+     * @throws IOException           if the file cannot be written
+     * @throws NoPermissionException if the file or its directory is not writable
+     */
+    static long writeAtomically(Path path, ChannelWriter writer) throws IOException, NoPermissionException {
         if (!path.isAbsolute()) {
             path = path.toAbsolutePath();
         }
-        if (!Files.isRegularFile(path)) {
-            throw new IOException("Not a file!");
+        if (Files.exists(path)) {
+            if (!Files.isRegularFile(path)) {
+                throw new IOException("Not a file!");
+            }
+            if (!Files.isWritable(path)) {
+                throw new NoPermissionException("File isn't writable!");
+            }
+            if (!Files.isReadable(path)) {
+                throw new NoPermissionException("File isn't readable!");
+            }
         }
-        if (!Files.isWritable(path)) {
-            throw new NoPermissionException("File isn't writable!");
+        Path directory = path.getParent();
+        if (!Files.isWritable(directory)) {
+            throw new NoPermissionException("Directory isn't writable!");
         }
-        if (!Files.isReadable(path)) {
-            throw new NoPermissionException("File isn't readable!");
+
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        try {
+            long size;
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                channel.force(true);
+                size = channel.size();
+            }
+            replace(temp, path);
+            return size;
+        } finally {
+            Files.deleteIfExists(temp);
         }
+    }
 
+    private static void writeCsv(Writer writer, Collection<MusicBand> musicBands) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (MusicBand musicBand : musicBands) {
+            Coordinates coordinates = musicBand.getCoordinates();
+            Label label = musicBand.getLabel();
+            writeValue(writer, String.valueOf(musicBand.getAlbumsCount()));
+            writer.write(',');
+            writeValue(writer, coordinates == null ? null : String.valueOf(coordinates.getX()));
+            writer.write(',');
+            writeValue(writer, coordinates == null ? null : String.valueOf(coordinates.getY()));
+            writer.write(',');
+            writeValue(writer, musicBand.getCreationDate() == null ? null : DateCodec.format(musicBand.getCreationDate()));
+            writer.write(',');
+            writeValue(writer, musicBand.getMusicGenre() == null ? null : musicBand.getMusicGenre().name());
+            writer.write(',');
+            writeValue(writer, String.valueOf(musicBand.getId()));
+            writer.write(',');
+            writeValue(writer, label == null || label.getBands() == null ? null : String.valueOf(label.getBands()));
+            writer.write(',');
+            writeValue(writer, label == null ? null : label.getName());
+            writer.write(',');
+            writeValue(writer, label == null ? null : String.valueOf(label.getSales()));
+            writer.write(',');
+            writeValue(writer, musicBand.getName());
+            writer.write(',');
+            writeValue(writer, String.valueOf(musicBand.getNumberOfParticipants()));
+            writer.write('\n');
+        }
+    }
+
+    private static void writeValue(Writer writer, String value) throws IOException {
+        writer.write('"');
+        if (value != null) {
+            if (value.indexOf('"') < 0) {
+                writer.write(value);
+            } else {
+                writer.write(value.replace("\"", "\"\""));
+            }
+        }
+        writer.write('"');
+    }
 
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(path.toFile()))) {
-            OutputStreamWriter writer = new OutputStreamWriter(bos);
-            StatefulBeanToCsv<MusicBand> beanToCsv = new StatefulBeanToCsvBuilder<MusicBand>(writer).build();
-            beanToCsv.write(musicBands.stream());
-            writer.close();
-        } catch (IOException | CsvDataTypeMismatchException | CsvRequiredFieldEmptyException e) {
-            System.out.println(e.getMessage());
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Forces a directory to disk, so a rename inside it survives a crash. Some platforms, Windows among them,
+     * cannot open a directory at all; there the rename is left to the file system and a warning is logged.
+     * Where the directory can be opened, a failure to force it is an error like any other failed write.
+     *
+     * @param directory the directory to force
+     * @throws IOException if the directory is opened but cannot be forced
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            logger.warning("Cannot open the directory " + directory + " to make the rename durable: " + e.getMessage());
+            return;
+        }
+        try (channel) {
+            channel.force(true);
         }
     }
 }
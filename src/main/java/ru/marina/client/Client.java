@@ -1,5 +1,7 @@
 package ru.marina.client;
 
+import ru.marina.base.FrameReader;
+import ru.marina.base.Frames;
 import ru.marina.base.Request;
 import ru.marina.base.Response;
 import ru.marina.exceptions.NoSuchCommandException;
@@ -9,6 +11,8 @@ import java.io.*;
 import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -18,7 +22,6 @@ public class Client {
     private final Scanner SCANNER = new Scanner(System.in);
     private final InputManager inputManager = new InputManager(SCANNER);
     private static final int RETRY_DELAY = 5000;
-    private static final int BUFFER_SIZE = 4096;
     private static final int CONNECT_TIMEOUT = 5000;
     private static final int RESPONSE_TIMEOUT = 10000;
     private final String[] COMMANDS = new String[]{
@@ -37,12 +40,18 @@ public class Client {
             "sum_of_number_of_participants",
             "average_of_number_of_participants",
             "print_unique_label",
+            "filter",
+            "in_rectangle",
+            "nearest",
     };
 
     private final Logger logger = Logger.getLogger(Client.class.getName());
     private SocketChannel channel;
     private Selector selector;
     private final int MAX_RECONNECTION_ATTEMPTS = 3;
+    private static final int PIPELINE_WINDOW = 64;
+    private final FrameReader frameReader = new FrameReader();
+    private long lastRequestId;
 
     public Client(InetAddress host, int port) {
         this.HOST = host;
@@ -69,19 +78,20 @@ public class Client {
                         continue;
                     }
                     String[] args = input.split("\\s+");
-                    Request request;
                     String command = args[0];
                     if (!Arrays.asList(COMMANDS).contains(command)) {
                         throw new NoSuchCommandException("Unknown command: " + command);
-                    } else if (command.equals("add")
-                            || command.equals("add_if_max")
-                            || command.equals("add_if_min")
-                            || command.equals("update")) {
-                        MusicBand musicBand = new MusicBand();
-                        inputManager.describeMusicBand(musicBand);
-                        request = new Request(args, musicBand);
+                    }
+
+                    List<Request> requests = new ArrayList<>();
+                    if (command.equals("execute_script")) {
+                        if (args.length < 2) {
+                            logger.warning("Command requires \"path\" argument");
+                            continue;
+                        }
+                        readScript(Paths.get(args[1]), requests, new HashSet<>());
                     } else {
-                        request = new Request(args);
+                        requests.add(buildRequest(args, inputManager));
                     }
 
                     for (int attempt = 0; attempt < MAX_RECONNECTION_ATTEMPTS; attempt++) {
@@ -90,16 +100,7 @@ public class Client {
                                 connectToServer();
                             }
 
-                            sendRequest(request);
-                            Response response = receiveResponse();
-                            if (response.getStatus() == Status.OK) {
-                                logger.info("Status " + response.getStatus());
-                                System.out.println(response.getMessage());
-                            } else if (response.getStatus() == Status.CONNECTION_ERROR) {
-                                throw new ConnectException();
-                            } else {
-                                logger.warning(String.valueOf(response.getMessage()));
-                            }
+                            exchange(requests);
                             break;
                         } catch (ConnectException e) {
                             logger.warning("Connection failed: " + e.getMessage());
@@ -132,6 +133,133 @@ public class Client {
         return channel != null && channel.isConnected();
     }
 
+    /**
+     * Creates a request for the command, asking for a music band if the command needs one.
+     *
+     * @param args         the command and its arguments
+     * @param inputManager the input manager used to read the music band
+     * @return the request to send
+     */
+    private Request buildRequest(String[] args, InputManager inputManager) {
+        String command = args[0];
+        if (command.equals("add")
+                || command.equals("add_if_max")
+                || command.equals("add_if_min")
+                || command.equals("update")) {
+            MusicBand musicBand = new MusicBand();
+            inputManager.describeMusicBand(musicBand);
+            return new Request(args, musicBand);
+        }
+        return new Request(args);
+    }
+
+    /**
+     * Reads the commands of a script file into requests, expanding nested scripts.
+     *
+     * @param path     the path of the script
+     * @param requests the list the requests are added to
+     * @param scripts  the scripts that are being read right now, used to detect recursion
+     * @throws IOException if the script cannot be read
+     */
+    private void readScript(Path path, List<Request> requests, Set<Path> scripts) throws IOException {
+        Path script = path.toAbsolutePath().normalize();
+        if (!scripts.add(script)) {
+            logger.warning("Recursion! Script " + script + " skipped");
+            return;
+        }
+
+        try (Scanner scanner = new Scanner(script)) {
+            InputManager scriptInputManager = new InputManager(scanner);
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine().trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] args = line.split("\\s+");
+                args[0] = args[0].toLowerCase();
+
+                if (args[0].equals("exit")) {
+                    break;
+                } else if (!Arrays.asList(COMMANDS).contains(args[0])) {
+                    logger.warning(args[0] + " is not a command. Skipped");
+                } else if (args[0].equals("execute_script")) {
+                    if (args.length < 2) {
+                        logger.warning("Command requires \"path\" argument");
+                    } else {
+                        readScript(script.resolveSibling(args[1]), requests, scripts);
+                    }
+                } else {
+                    requests.add(buildRequest(args, scriptInputManager));
+                }
+            }
+        } finally {
+            scripts.remove(script);
+        }
+    }
+
+    /**
+     * Sends the requests over the current connection without waiting for each response,
+     * keeping at most PIPELINE_WINDOW of them in flight, and prints the responses in request order.
+     * The parts of a streamed response are printed as soon as they arrive if all earlier requests
+     * have been answered, and are kept until then otherwise.
+     *
+     * @param requests the requests to send
+     * @throws IOException if the connection fails or a response is corrupted
+     */
+    private void exchange(List<Request> requests) throws IOException {
+        for (Request request : requests) {
+            request.setId(++lastRequestId);
+        }
+
+        Map<Long, Response> received = new HashMap<>();
+        Map<Long, List<Response>> parts = new HashMap<>();
+        int sent = 0;
+        int receivedCount = 0;
+        int printed = 0;
+        while (printed < requests.size()) {
+            while (sent < requests.size() && sent - receivedCount < PIPELINE_WINDOW) {
+                sendRequest(requests.get(sent++));
+            }
+
+            Response response = receiveResponse();
+            if (response.isPartial()) {
+                parts.computeIfAbsent(response.getRequestId(), id -> new ArrayList<>()).add(response);
+            } else {
+                received.put(response.getRequestId(), response);
+                receivedCount++;
+            }
+
+            while (printed < requests.size()) {
+                long id = requests.get(printed).getId();
+                List<Response> waiting = parts.remove(id);
+                if (waiting != null) {
+                    for (Response part : waiting) {
+                        printResponse(part);
+                    }
+                }
+                Response done = received.remove(id);
+                if (done == null) {
+                    break;
+                }
+                printResponse(done);
+                printed++;
+            }
+        }
+    }
+
+    private void printResponse(Response response) throws ConnectException {
+        if (response.getStatus() == Status.OK && response.isPartial()) {
+            System.out.print(ResponseFormatter.format(response));
+        } else if (response.getStatus() == Status.OK) {
+            logger.info("Status " + response.getStatus());
+            System.out.print(ResponseFormatter.format(response));
+        } else if (response.getStatus() == Status.CONNECTION_ERROR) {
+            throw new ConnectException();
+        } else {
+            logger.warning(String.valueOf(response.getMessage()));
+        }
+    }
+
     private void connectToServer() throws IOException {
         logger.info("Connecting to server...");
         channel = SocketChannel.open();
@@ -165,22 +293,58 @@ public class Client {
         }
     }
 
+    /**
+     * Writes a request frame. When the socket buffer is full, waits on the selector until the channel
+     * is writable again, reading the responses that arrive meanwhile so the server is never stuck
+     * writing to this client.
+     *
+     * @param request the request to send
+     * @throws IOException if the connection fails or the server accepts no bytes for too long
+     */
     private void sendRequest(Request request) throws IOException {
         logger.info("Sending request...");
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeObject(request);
+        ByteBuffer buffer = Frames.encode(request);
+        channel.write(buffer);
+        if (!buffer.hasRemaining()) {
+            return;
         }
 
-        ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
-        while (buffer.hasRemaining()) {
-            channel.write(buffer);
+        SelectionKey key = channel.keyFor(selector);
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        try {
+            long startTime = System.currentTimeMillis();
+            while (buffer.hasRemaining()) {
+                selector.select(RESPONSE_TIMEOUT);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey ready = keys.next();
+                    keys.remove();
+
+                    if (ready.isReadable()) {
+                        frameReader.read(channel);
+                    }
+                    if (ready.isValid() && ready.isWritable() && channel.write(buffer) > 0) {
+                        startTime = System.currentTimeMillis();
+                    }
+                }
+
+                if (buffer.hasRemaining() && System.currentTimeMillis() - startTime > RESPONSE_TIMEOUT) {
+                    throw new SocketTimeoutException("Request timeout");
+                }
+            }
+        } finally {
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
         }
     }
 
-    private Response receiveResponse() throws IOException, ClassNotFoundException {
-        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private Response receiveResponse() throws IOException {
+        Response pending = takeResponse();
+        if (pending != null) {
+            return pending;
+        }
+
         logger.info("Receiving response...");
         long startTime = System.currentTimeMillis();
         while (true) {
@@ -198,23 +362,11 @@ public class Client {
                 keys.remove();
 
                 if (key.isReadable()) {
-                    int bytesRead = channel.read(buffer);
-                    if (bytesRead == -1) {
-                        throw new EOFException("Connection closed by server");
-                    }
+                    frameReader.read(channel);
 
-                    if (bytesRead > 0) {
-                        buffer.flip();
-                        baos.write(buffer.array(), 0, buffer.limit());
-                        buffer.clear();
-                    }
-
-                    if (baos.size() > 0) {
-                        try {
-                            return (Response) deserializeResponse(baos.toByteArray());
-                        } catch (EOFException | StreamCorruptedException e) {
-                            // Не все данные получены, продолжаем чтение
-                        }
+                    Response response = takeResponse();
+                    if (response != null) {
+                        return response;
                     }
                 }
             }
@@ -225,13 +377,17 @@ public class Client {
         }
     }
 
-    private Object deserializeResponse(byte[] data) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
-            return ois.readObject();
-        }
+    /**
+     * Takes the first complete response frame from the received bytes.
+     * Bytes of the following frames stay in the frame reader for the next call.
+     *
+     * @return the response, or null if the frame has not been fully received yet
+     */
+    private Response takeResponse() throws IOException {
+        ByteBuffer frame = frameReader.nextFrame();
+        return frame != null ? Frames.decodeResponse(frame) : null;
     }
 
-
     private void closeConnection() {
         logger.info("Closing connection...");
         if (channel != null) {
@@ -242,6 +398,7 @@ public class Client {
             }
             channel = null;
         }
+        frameReader.clear();
     }
 
     private void closeSelector() {
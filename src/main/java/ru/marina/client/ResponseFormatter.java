@@ -0,0 +1,58 @@
+package ru.marina.client;
+
+import ru.marina.base.Response;
+import ru.marina.base.Scalar;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * The ResponseFormatter class turns the records and values of a response into the text shown to the user.
+ * The music bands and the records of chosen fields are printed first, one per line, then the message, which sums
+ * them up or introduces the labels and values printed after it.
+ */
+public class ResponseFormatter {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+
+    /**
+     * Formats the response.
+     *
+     * @param response the response
+     * @return the text of the response, every line of it ending with a line separator
+     */
+    public static String format(Response response) {
+        StringBuilder result = new StringBuilder();
+        for (MusicBand musicBand : response.getMusicBands()) {
+            result.append(musicBand).append(System.lineSeparator());
+        }
+        for (List<Scalar> record : response.getRecords()) {
+            for (int i = 0; i < record.size(); i++) {
+                Scalar scalar = record.get(i);
+                result.append(i == 0 ? "" : "; ").append(scalar.getName()).append('=').append(formatValue(scalar));
+            }
+            result.append(System.lineSeparator());
+        }
+        if (response.getMessage() != null) {
+            result.append(response.getMessage()).append(System.lineSeparator());
+        }
+        for (Label label : response.getLabels()) {
+            result.append(label).append(System.lineSeparator());
+        }
+        for (Scalar scalar : response.getScalars()) {
+            result.append(scalar.getName()).append(": ").append(formatValue(scalar)).append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+
+    private static String formatValue(Scalar scalar) {
+        return switch (scalar.getKind()) {
+            case LONG -> Long.toString(scalar.getLong());
+            case DOUBLE -> Double.toString(scalar.getDouble());
+            case DATE -> scalar.getDate().toInstant().atZone(ZoneId.systemDefault()).format(DATE_FORMATTER);
+            case TEXT -> scalar.getText();
+        };
+    }
+}
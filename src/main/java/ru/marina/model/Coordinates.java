@@ -1,17 +1,13 @@
 package ru.marina.model;
 
-import com.opencsv.bean.CsvBindByName;
-
 import java.io.Serializable;
 
 /**
  * Represents the coordinates of a point in a two-dimensional space.
  */
 public class Coordinates implements Serializable {
-    @CsvBindByName(column = "coordinates_x", required = true)
     private double x; // Максимальное значение поля: 314
 
-    @CsvBindByName(column = "coordinates_y", required = true)
     private double y; // Максимальное значение поля: 314
 
     /**
@@ -1,19 +1,16 @@
 package ru.marina.model;
 
-import com.opencsv.bean.CsvBindByName;
+import java.util.Objects;
 
 /**
  * The Label class represents a label in the music industry.
  * It contains information about the label's name, number of bands, and sales.
  */
 public class Label implements java.io.Serializable {
-    @CsvBindByName(column = "label_name")
     private String name;
 
-    @CsvBindByName(column = "label_bands")
     private Long bands;
 
-    @CsvBindByName(column = "label_sales", required = true)
     private double sales;
 
     /**
@@ -85,6 +82,34 @@ public class Label implements java.io.Serializable {
         this.sales = sales;
     }
 
+    /**
+     * Compares the label with another object. Labels are equal when their names, bands and sales are equal.
+     *
+     * @param o the object to compare with
+     * @return true if the object is an equal label
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Label other)) {
+            return false;
+        }
+        return Objects.equals(name, other.name)
+                && Objects.equals(bands, other.bands)
+                && Double.compare(sales, other.sales) == 0;
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     * @return The hash code of the label.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, bands, sales);
+    }
+
     /**
      * Returns a string representation of the Label object.
      * @return A string representation of the Label object.
@@ -1,10 +1,5 @@
 package ru.marina.model;
 
-import com.opencsv.bean.CsvBindByName;
-import com.opencsv.bean.CsvCustomBindByName;
-import com.opencsv.bean.CsvRecurse;
-import ru.marina.base.DateConverter;
-
 import java.io.Serializable;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -15,28 +10,20 @@ import java.util.UUID;
  * Represents a music band.
  */
 public class MusicBand implements Comparable<MusicBand>, Serializable {
-    @CsvBindByName(column = "ID", required = true)
     private Long id;  // Поле не может быть null, Значение поля должно быть больше 0, Значение этого поля должно быть уникальным, Значение этого поля должно генерироваться автоматически
 
-    @CsvBindByName(column = "name", required = true)
     private String name;  // Поле не может быть null, Строка не может быть пустой
 
-    @CsvRecurse
     private Coordinates coordinates;  // Поле не может быть null
 
-    @CsvCustomBindByName(column = "creation_date", required = true, converter = DateConverter.class)
     private Date creationDate;  // Поле не может быть null, Значение этого поля должно генерироваться автоматически
 
-    @CsvBindByName(column = "numberOfParticipants", required = true)
     private int numberOfParticipants;  // Значение поля должно быть больше 0
 
-    @CsvBindByName(column = "albumsCount", required = true)
     private int albumsCount;  // Значение поля должно быть больше 0
 
-    @CsvBindByName(column = "genre", required = true)
     private MusicGenre genre;  // Поле может быть null
 
-    @CsvRecurse
     private Label label;  // Поле не может быть null
 
     /**
@@ -75,6 +62,37 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
         setLabel(label);
     }
 
+    /**
+     * Constructor for MusicBand that restores a previously created music band,
+     * keeping its ID and creation date.
+     * @param id the ID of the music band
+     * @param name the name of the music band
+     * @param coordinates the coordinates of the music band
+     * @param creationDate the creation date of the music band
+     * @param numberOfParticipants the number of participants in the music band
+     * @param albumsCount the number of albums of the music band
+     * @param genre the genre of the music band
+     * @param label the label of the music band
+     */
+    public MusicBand(Long id,
+                     String name,
+                     Coordinates coordinates,
+                     Date creationDate,
+                     int numberOfParticipants,
+                     int albumsCount,
+                     MusicGenre genre,
+                     Label label)
+    {
+        setId(id);
+        setName(name);
+        setCoordinates(coordinates);
+        setCreationDate(creationDate);
+        setNumberOfParticipants(numberOfParticipants);
+        setAlbumsCount(albumsCount);
+        setGenre(genre);
+        setLabel(label);
+    }
+
     /**
      * Gets the ID of the music band.
      * @return the ID
@@ -143,12 +161,24 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
         this.id = UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE;
     }
 
+    /**
+     * Sets the ID of the music band.
+     * @param id the ID to set
+     * @throws IllegalArgumentException if the ID is null or not greater than 0
+     */
+    public final void setId(Long id) {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID must be greater than 0");
+        }
+        this.id = id;
+    }
+
     /**
      * Sets the name of the music band.
      * @param name the name to set
      * @throws IllegalArgumentException if the name is null or empty
      */
-    public void setName(String name) {
+    public final void setName(String name) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Flat name cannot be null or empty");
         }
@@ -160,7 +190,7 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
      * @param coordinates the coordinates to set
      * @throws IllegalArgumentException if the coordinates are null
      */
-    public void setCoordinates(Coordinates coordinates) {
+    public final void setCoordinates(Coordinates coordinates) {
         if (coordinates == null) {
             throw new IllegalArgumentException("Coordinates cannot be null");
         }
@@ -171,7 +201,19 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
         this.creationDate = new Date();
     }
 
-    public void setCreationDate(String date) {
+    /**
+     * Sets the creation date of the music band.
+     * @param creationDate the creation date to set
+     * @throws IllegalArgumentException if the creation date is null
+     */
+    public final void setCreationDate(Date creationDate) {
+        if (creationDate == null) {
+            throw new IllegalArgumentException("Creation date cannot be null");
+        }
+        this.creationDate = creationDate;
+    }
+
+    public final void setCreationDate(String date) {
         this.creationDate = new Date(Long.parseLong(date));
     }
 
@@ -180,7 +222,7 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
      * @param numberOfParticipants the number of participants to set
      * @throws IllegalArgumentException if the number of participants is less than or equal to 0
      */
-    public void setNumberOfParticipants(int numberOfParticipants) {
+    public final void setNumberOfParticipants(int numberOfParticipants) {
         if (numberOfParticipants <= 0) {
             throw new IllegalArgumentException("Area must be greater than 0");
         }
@@ -192,7 +234,7 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
      * @param albumsCount the number of albums to set
      * @throws IllegalArgumentException if the number of albums is less than or equal to 0
      */
-    public void setAlbumsCount(int albumsCount) {
+    public final void setAlbumsCount(int albumsCount) {
         if (albumsCount <= 0) {
             throw new IllegalArgumentException("Number of rooms must be greater than 0");
         }
@@ -203,7 +245,7 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
      * Sets the genre of the music band.
      * @param genre the genre to set
      */
-    public void setGenre(MusicGenre genre) {
+    public final void setGenre(MusicGenre genre) {
         this.genre = genre;
     }
 
@@ -212,7 +254,7 @@ public class MusicBand implements Comparable<MusicBand>, Serializable {
      * @param label the label to set
      * @throws IllegalArgumentException if the label is null
      */
-    public void setLabel(Label label) {
+    public final void setLabel(Label label) {
         if (label == null) {
             throw new IllegalArgumentException("Transport cannot be null");
         }
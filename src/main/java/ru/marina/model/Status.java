@@ -5,7 +5,8 @@ import java.io.Serializable;
 public enum Status implements Serializable {
     OK ("Запрос успешно выполнен"),
     REQUEST_ERROR ("Ошибка обработки запроса"),
-    CONNECTION_ERROR ("Ошибка соединения");
+    CONNECTION_ERROR ("Ошибка соединения"),
+    BUSY ("Сервер перегружен, повторите запрос позже");
 
     private final String message;
 
@@ -0,0 +1,149 @@
+package ru.marina.server;
+
+import ru.marina.base.FrameReader;
+import ru.marina.base.Frames;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ClientSession class holds the state of one client connection:
+ * the partially received frames and the responses waiting to be written.
+ * Frames are read and written by the selector thread only, while responses
+ * may be queued from the worker threads that execute the requests.
+ * A worker streaming a long response waits while too many of its bytes are still queued,
+ * so the queue does not grow faster than the client reads.
+ */
+public class ClientSession {
+    private static final long CLOSE_CHECK_INTERVAL = 100;
+
+    private final SocketChannel channel;
+    private final String caller;
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final FrameReader frameReader = new FrameReader(Frames.MAX_REQUEST_FRAME_SIZE);
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+
+    /**
+     * Constructs a ClientSession for the specified channel.
+     *
+     * @param channel the accepted client channel
+     * @throws IOException if the address of the client cannot be read
+     */
+    public ClientSession(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.caller = "client " + channel.getRemoteAddress();
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the description of the client used as the caller of its requests.
+     *
+     * @return the description of the client
+     */
+    public String getCaller() {
+        return caller;
+    }
+
+    /**
+     * Reads the available bytes from the channel.
+     *
+     * @throws IOException if the client has closed the connection or the read fails
+     */
+    public void read() throws IOException {
+        frameReader.read(channel);
+    }
+
+    /**
+     * Takes the next complete frame from the received bytes.
+     *
+     * @return the frame body, valid until the next read, or null if the frame has not been fully received yet
+     * @throws IOException if the frame header is invalid or announces a request longer than the limit
+     */
+    public ByteBuffer nextFrame() throws IOException {
+        return frameReader.nextFrame();
+    }
+
+    /**
+     * Puts a frame into the queue of frames to be sent to the client.
+     * Can be called from any thread.
+     *
+     * @param frame the frame to send
+     */
+    public void enqueue(ByteBuffer frame) {
+        queuedBytes.addAndGet(frame.remaining());
+        writeQueue.add(frame);
+    }
+
+    /**
+     * Waits until no more than the given number of bytes are waiting to be sent to the client.
+     * Can be called from any thread except the selector thread.
+     *
+     * @param limit the number of queued bytes to wait for
+     * @throws IOException if the connection is closed while waiting
+     */
+    public void awaitQueuedBelow(long limit) throws IOException {
+        lock.lock();
+        try {
+            while (queuedBytes.get() > limit) {
+                if (!channel.isOpen()) {
+                    throw new IOException("Connection closed");
+                }
+                // the wait is bounded, since nothing is signalled when the connection is closed
+                drained.await(CLOSE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending a response", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes as many queued frames as the channel accepts without blocking.
+     *
+     * @return true if all queued frames have been written
+     * @throws IOException if the write fails
+     */
+    public boolean flush() throws IOException {
+        boolean written = false;
+        try {
+            while (!writeQueue.isEmpty()) {
+                ByteBuffer frame = writeQueue.peek();
+                channel.write(frame);
+                if (frame.hasRemaining()) {
+                    return false;
+                }
+                writeQueue.poll();
+                queuedBytes.addAndGet(-frame.limit());
+                written = true;
+            }
+            return true;
+        } finally {
+            if (written) {
+                signalDrained();
+            }
+        }
+    }
+
+    private void signalDrained() {
+        lock.lock();
+        try {
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -4,7 +4,10 @@ import java.net.InetSocketAddress;
 
 public class Main {
     public static void main(String[] args) {
-        Server server = new Server(new InetSocketAddress(52828), "test.csv");
+        int maxInFlight = Integer.getInteger("server.maxInFlight", Server.DEFAULT_MAX_IN_FLIGHT);
+        int workerThreads = Integer.getInteger("server.workerThreads", 0);
+        String fileName = System.getProperty("server.file", "test.csv");
+        Server server = new Server(new InetSocketAddress(52828), fileName, maxInFlight, workerThreads);
         server.initialize();
     }
 }
@@ -1,31 +1,85 @@
 package ru.marina.server;
 
+import ru.marina.base.Frames;
 import ru.marina.base.Request;
 import ru.marina.base.Response;
 import ru.marina.exceptions.NoFileException;
-import ru.marina.model.MusicBand;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
 import ru.marina.server.base.CommandExecutor;
 import ru.marina.server.commands.Command;
+import ru.marina.server.commands.CommandContext;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+/**
+ * The Server class accepts clients and answers their requests.
+ * The selector thread only reads requests and writes responses; every command is executed
+ * by a worker, by default on a virtual thread of its own, so a slow command never stops other clients.
+ * The number of requests being executed at the same time is limited, a request over the limit
+ * is answered at once with the {@link Status#BUSY} status.
+ */
 public class Server {
     private final InetSocketAddress address;
     private final CLIController controller;
     private final CommandExecutor commandExecutor;
     private final Logger logger = Logger.getLogger(this.getClass().getName());
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+    private static final int SELECT_TIMEOUT = 1000;
+    private static final int SHUTDOWN_TIMEOUT = 10;
+    private static final long STREAM_BUFFER_LIMIT = 1024 * 1024;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+    private final Queue<SelectionKey> completed = new ConcurrentLinkedQueue<>();
     private volatile boolean running = true;
+    private volatile Selector selector;
 
 
+    /**
+     * Constructs a Server that runs every request on its own virtual thread.
+     *
+     * @param address  the address to listen on
+     * @param filename the name of the collection file
+     */
     public Server(InetSocketAddress address, String filename) {
+        this(address, filename, DEFAULT_MAX_IN_FLIGHT, 0);
+    }
+
+    /**
+     * Constructs a Server.
+     *
+     * @param address       the address to listen on
+     * @param filename      the name of the collection file
+     * @param maxInFlight   the number of requests that can be executed at the same time
+     * @param workerThreads the number of worker threads, or 0 to run every request on its own virtual thread
+     */
+    public Server(InetSocketAddress address, String filename, int maxInFlight, int workerThreads) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("The in-flight request limit must be positive");
+        }
+        if (workerThreads < 0) {
+            throw new IllegalArgumentException("The number of worker threads cannot be negative");
+        }
         this.address = address;
         this.controller = new CLIController(new String[]{filename});
         this.commandExecutor = new CommandExecutor(controller);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.workers = workerThreads == 0
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(workerThreads);
 
         new Thread(this::handleServerCommands).start();
 
@@ -34,26 +88,206 @@ public class Server {
 
     public void initialize() {
         try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            selector = Selector.open();
             channel.bind(address);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_ACCEPT);
             System.out.println("Server started on port " + address.getPort());
             System.out.print("server> ");
             while (running) {
-                try (Socket client = channel.accept().socket();
-                     ObjectOutputStream out = new ObjectOutputStream(client.getOutputStream());
-                     ObjectInputStream in = new ObjectInputStream(client.getInputStream())) {
-
-                    Request request = (Request) in.readObject();
-                    Response response = executeCommand(request);
-                    out.writeObject(response);
-
-                } catch (Exception e) {
-                    logger.warning("Client handling error: " + e.getMessage());
+                selector.select(SELECT_TIMEOUT);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            acceptClient(channel);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            readRequests(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            writeResponses(key);
+                        }
+                    } catch (IOException e) {
+                        logger.info("Client disconnected: " + e.getMessage());
+                        closeClient(key);
+                    }
                 }
+                writeCompleted();
             }
         } catch (IOException e) {
             logger.warning("Server exception: " + e.getMessage());
         } finally {
+            shutdownWorkers();
+            closeSelector();
             saveCollection();
+            closeJournal();
+        }
+    }
+
+    /**
+     * Stops the server. The selector loop ends after its current round, the running requests are finished,
+     * and the collection is saved before {@link #initialize()} returns.
+     */
+    public void stop() {
+        running = false;
+        Selector current = selector;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    private void acceptClient(ServerSocketChannel channel) throws IOException {
+        SocketChannel client = channel.accept();
+        if (client == null) {
+            return;
+        }
+        client.configureBlocking(false);
+        client.register(selector, SelectionKey.OP_READ, new ClientSession(client));
+        logger.info("Client connected: " + client.getRemoteAddress());
+    }
+
+    private void readRequests(SelectionKey key) throws IOException {
+        ClientSession session = (ClientSession) key.attachment();
+        session.read();
+
+        ByteBuffer frame;
+        while ((frame = session.nextFrame()) != null) {
+            Request request = Frames.decodeRequest(frame);
+            if (!inFlight.tryAcquire()) {
+                session.enqueue(encodeResponse(request, busyResponse()));
+                continue;
+            }
+            try {
+                workers.execute(() -> handleRequest(key, request));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                session.enqueue(encodeResponse(request, busyResponse()));
+            }
+        }
+        writeResponses(key);
+    }
+
+    /**
+     * Executes a request on a worker thread and hands the response over to the selector thread.
+     *
+     * @param key     the key of the client that sent the request
+     * @param request the request
+     */
+    private void handleRequest(SelectionKey key, Request request) {
+        ClientSession session = (ClientSession) key.attachment();
+        try {
+            Response response = executeCommand(key, request);
+            session.enqueue(encodeResponse(request, response));
+        } finally {
+            inFlight.release();
+            completed.add(key);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Sends a part of a response from a worker thread, waiting while the client is behind
+     * by more than STREAM_BUFFER_LIMIT bytes.
+     *
+     * @param key     the key of the client that sent the request
+     * @param request the request
+     * @param part    the part of the response
+     */
+    private void streamResponse(SelectionKey key, Request request, Response part) {
+        ClientSession session = (ClientSession) key.attachment();
+        try {
+            session.awaitQueuedBelow(STREAM_BUFFER_LIMIT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        part.setPartial(true);
+        session.enqueue(encodeResponse(request, part));
+        completed.add(key);
+        selector.wakeup();
+    }
+
+    private ByteBuffer encodeResponse(Request request, Response response) {
+        response.setRequestId(request.getId());
+        try {
+            return Frames.encode(response);
+        } catch (RuntimeException e) {
+            Response error = new Response(Status.REQUEST_ERROR, "Error encoding response: " + e.getMessage());
+            error.setRequestId(request.getId());
+            error.setPartial(response.isPartial());
+            return Frames.encode(error);
+        }
+    }
+
+    private Response busyResponse() {
+        return new Response(Status.BUSY, "Server is busy, try again later");
+    }
+
+    /**
+     * Writes the responses completed by the workers since the last pass of the selector loop.
+     */
+    private void writeCompleted() {
+        SelectionKey key;
+        while ((key = completed.poll()) != null) {
+            if (!key.isValid()) {
+                continue;
+            }
+            try {
+                writeResponses(key);
+            } catch (IOException e) {
+                logger.info("Client disconnected: " + e.getMessage());
+                closeClient(key);
+            }
+        }
+    }
+
+    private void writeResponses(SelectionKey key) throws IOException {
+        ClientSession session = (ClientSession) key.attachment();
+        if (session.flush()) {
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void closeClient(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.warning("Error closing client channel: " + e.getMessage());
+        }
+    }
+
+    private void shutdownWorkers() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                logger.warning("Some requests were still running when the server stopped");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeSelector() {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof ClientSession) {
+                closeClient(key);
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warning("Error closing selector: " + e.getMessage());
         }
     }
 
@@ -67,19 +301,14 @@ public class Server {
         }
     }
 
-    private Response executeCommand(Request request) {
+    private Response executeCommand(SelectionKey key, Request request) {
+        ClientSession session = (ClientSession) key.attachment();
         try {
-            String[] args = request.getInput();
-            String command = args[0];
-            switch (command) {
-                case "add":
-                case "add_if_max":
-                case "add_if_min":
-                case "update":
-                    MusicBand musicBand = request.getMusicBand();
-                    controller.setExtraMusicBand(musicBand);
+            if (request.getInput().length == 0) {
+                return new Response(Status.REQUEST_ERROR, "Empty request");
             }
-            return commandExecutor.handleCommand(args);
+            return commandExecutor.handleCommand(new CommandContext(request.getInput(), request.getMusicBand(),
+                    session.getCaller(), part -> streamResponse(key, request, part)));
         } catch (Exception e) {
             return new Response(Status.REQUEST_ERROR,"Error executing command: " + e.getMessage());
         }
@@ -93,19 +322,27 @@ public class Server {
                 String input = scanner.nextLine().trim();
                 if ("save".equalsIgnoreCase(input)) {
                     saveCollection();
-                    logger.info("Collection saved");
                 } else if ("exit".equalsIgnoreCase(input)) {
-                    running = false;
                     logger.info("Server shutting down...");
+                    stop();
                 }
             }
         }
     }
 
+    private void closeJournal() {
+        try {
+            controller.close();
+        } catch (IOException e) {
+            logger.warning("Error closing journal: " + e.getMessage());
+        }
+    }
+
     private void saveCollection() {
         try {
             Command saveCommand = commandExecutor.getCommand("save");
-            saveCommand.execute(new String[]{}, false, null);
+            Response response = saveCommand.execute(new CommandContext(new String[]{"save"}, "server console"));
+            logger.info(response.getMessage());
         } catch (Exception e) {
             logger.warning("Error saving collection: " + e.getMessage());
         }
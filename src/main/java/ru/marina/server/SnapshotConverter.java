@@ -0,0 +1,58 @@
+package ru.marina.server;
+
+import ru.marina.base.BinarySnapshot;
+import ru.marina.base.ParallelCsvLoader;
+import ru.marina.base.Serializer;
+import ru.marina.model.MusicBand;
+
+import javax.naming.NoPermissionException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SnapshotConverter class converts a collection file between CSV and the binary snapshot format.
+ * The format of each file is chosen by its extension, see {@link BinarySnapshot#isBinary(Path)}.
+ * <p>
+ * Usage: {@code SnapshotConverter <input file> <output file>}
+ */
+public class SnapshotConverter {
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: SnapshotConverter <input file> <output file>");
+            System.exit(2);
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        try {
+            long start = System.nanoTime();
+            List<MusicBand> musicBands = read(input);
+            long read = System.nanoTime();
+            long bytes = BinarySnapshot.isBinary(output)
+                    ? BinarySnapshot.write(musicBands, output)
+                    : Serializer.serialize(musicBands, output.toString());
+            long written = System.nanoTime();
+            System.out.println(musicBands.size() + " item(s) converted from " + input + " to " + output
+                    + " (" + bytes + " bytes), read " + (read - start) / 1_000_000 + " ms, write "
+                    + (written - read) / 1_000_000 + " ms");
+        } catch (IOException | NoPermissionException e) {
+            System.out.println("Error: Unable to convert the file. " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static List<MusicBand> read(Path input) throws IOException {
+        if (BinarySnapshot.isBinary(input)) {
+            return Files.size(input) == 0 ? List.of() : BinarySnapshot.read(input);
+        }
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(ParallelCsvLoader.DEFAULT_CHUNK_SIZE).load(input);
+        if (result.getSkipped() > 0) {
+            System.out.println(result.getSkipped() + " invalid item(s) skipped");
+        }
+        List<MusicBand> musicBands = new ArrayList<>(result.getParsed());
+        result.getChunks().forEach(musicBands::addAll);
+        return musicBands;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.marina.server.base;
+
+import ru.marina.base.Scalar;
+import ru.marina.model.MusicBand;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * The BandField enum names the fields of a music band a query can order by and show.
+ */
+public enum BandField {
+    ID(MusicBand::getId, Comparator.comparingLong(MusicBand::getId)),
+    NAME(MusicBand::getName, Comparator.comparing(MusicBand::getName)),
+    X(musicBand -> musicBand.getCoordinates().getX(), Comparator.comparingDouble(band -> band.getCoordinates().getX())),
+    Y(musicBand -> musicBand.getCoordinates().getY(), Comparator.comparingDouble(band -> band.getCoordinates().getY())),
+    CREATED(MusicBand::getCreationDate, Comparator.comparing(MusicBand::getCreationDate)),
+    PARTICIPANTS(MusicBand::getNumberOfParticipants, Comparator.comparingInt(MusicBand::getNumberOfParticipants)),
+    ALBUMS(MusicBand::getAlbumsCount, Comparator.comparingInt(MusicBand::getAlbumsCount)),
+    GENRE(MusicBand::getMusicGenre, Comparator.comparing(MusicBand::getMusicGenre,
+            Comparator.nullsLast(Comparator.naturalOrder()))),
+    LABEL(musicBand -> musicBand.getLabel().getName(), Comparator.comparing(band -> band.getLabel().getName(),
+            Comparator.nullsLast(Comparator.naturalOrder())));
+
+    private final Function<MusicBand, Object> value;
+    private final Comparator<MusicBand> order;
+
+    BandField(Function<MusicBand, Object> value, Comparator<MusicBand> order) {
+        this.value = value;
+        this.order = order;
+    }
+
+    /**
+     * Finds a field by its name, in any case.
+     *
+     * @param name the name of the field
+     * @return the field
+     * @throws IllegalArgumentException if there is no such field
+     */
+    public static BandField of(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the value of the field of a band.
+     *
+     * @param musicBand the band
+     * @return the value, may be null
+     */
+    public Object get(MusicBand musicBand) {
+        return value.apply(musicBand);
+    }
+
+    /**
+     * Returns the value of the field of a band as a value named after the field, so the client can format it.
+     *
+     * @param musicBand the band
+     * @return the named value, a text value holding null if the field is not set
+     */
+    public Scalar scalar(MusicBand musicBand) {
+        String name = name().toLowerCase(Locale.ROOT);
+        Object value = get(musicBand);
+        if (value instanceof Double number) {
+            return Scalar.of(name, number.doubleValue());
+        }
+        if (value instanceof Number number) {
+            return Scalar.of(name, number.longValue());
+        }
+        if (value instanceof Date date) {
+            return Scalar.of(name, date);
+        }
+        return Scalar.of(name, value == null ? null : value.toString());
+    }
+
+    /**
+     * Returns the order of the bands by the field and then by their ID, so no two bands are equal in it.
+     *
+     * @return the order
+     */
+    public Comparator<MusicBand> order() {
+        return this == ID ? order : order.thenComparing(ID.order);
+    }
+}
@@ -0,0 +1,220 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The BandQuery class describes a search over the collection: the conditions a band has to meet,
+ * the order of the found bands and how many of them to return. A condition that is not set lets every band pass.
+ * Ranges include both of their bounds. The query is run by {@link MusicBandStore#query(BandQuery)},
+ * which uses the indexes of the store for the conditions it can.
+ */
+public class BandQuery implements Predicate<MusicBand> {
+    public static final int DEFAULT_LIMIT = 100;
+
+    private String namePrefix;
+    private boolean genreSet;
+    private MusicGenre genre;
+    private long minParticipants = Long.MIN_VALUE;
+    private long maxParticipants = Long.MAX_VALUE;
+    private String labelName;
+    private double minX = Double.NEGATIVE_INFINITY;
+    private double maxX = Double.POSITIVE_INFINITY;
+    private double minY = Double.NEGATIVE_INFINITY;
+    private double maxY = Double.POSITIVE_INFINITY;
+    private long createdFrom = Long.MIN_VALUE;
+    private long createdTo = Long.MAX_VALUE;
+    private BandField orderBy = BandField.ID;
+    private boolean descending;
+    private int limit = DEFAULT_LIMIT;
+
+    /**
+     * The Result class holds the bands found by a query and the way they were found.
+     */
+    public static final class Result {
+        private final List<MusicBand> musicBands;
+        private final String plan;
+
+        Result(List<MusicBand> musicBands, String plan) {
+            this.musicBands = musicBands;
+            this.plan = plan;
+        }
+
+        /**
+         * Returns the found bands in the order of the query.
+         *
+         * @return the bands
+         */
+        public List<MusicBand> getMusicBands() {
+            return musicBands;
+        }
+
+        /**
+         * Returns a short description of how the bands were found, such as the index that was used.
+         *
+         * @return the description
+         */
+        public String getPlan() {
+            return plan;
+        }
+    }
+
+    @Override
+    public boolean test(MusicBand musicBand) {
+        return (namePrefix == null || musicBand.getName().startsWith(namePrefix))
+                && (!genreSet || musicBand.getMusicGenre() == genre)
+                && musicBand.getNumberOfParticipants() >= minParticipants
+                && musicBand.getNumberOfParticipants() <= maxParticipants
+                && (labelName == null || labelName.equals(musicBand.getLabel().getName()))
+                && musicBand.getCoordinates().getX() >= minX && musicBand.getCoordinates().getX() <= maxX
+                && musicBand.getCoordinates().getY() >= minY && musicBand.getCoordinates().getY() <= maxY
+                && musicBand.getCreationDate().getTime() >= createdFrom
+                && musicBand.getCreationDate().getTime() <= createdTo;
+    }
+
+    /**
+     * Checks whether the query limits the values of a field that the store keeps a sorted index of.
+     *
+     * @param field the field
+     * @return true if the field is bounded by the query
+     */
+    boolean isBounded(BandField field) {
+        return lowerBound(field) != Long.MIN_VALUE || upperBound(field) != Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks whether the query limits the coordinates, so the spatial grid of the store can narrow it down.
+     *
+     * @return true if x or y is bounded by the query
+     */
+    boolean isBoxed() {
+        return minX != Double.NEGATIVE_INFINITY || maxX != Double.POSITIVE_INFINITY
+                || minY != Double.NEGATIVE_INFINITY || maxY != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the smallest value of an indexed field a band may have, as it is kept in the index.
+     */
+    long lowerBound(BandField field) {
+        return switch (field) {
+            case PARTICIPANTS -> minParticipants;
+            case CREATED -> createdFrom;
+            default -> Long.MIN_VALUE;
+        };
+    }
+
+    /**
+     * Returns the biggest value of an indexed field a band may have, as it is kept in the index.
+     */
+    long upperBound(BandField field) {
+        return switch (field) {
+            case PARTICIPANTS -> maxParticipants;
+            case CREATED -> createdTo;
+            default -> Long.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Returns the order of the found bands.
+     *
+     * @return the order by the field of the query, ties broken by the ID
+     */
+    public Comparator<MusicBand> order() {
+        return descending ? orderBy.order().reversed() : orderBy.order();
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Makes the query look for the bands of a genre.
+     *
+     * @param genre the genre, or null for the bands without a genre
+     */
+    public void setGenre(MusicGenre genre) {
+        this.genreSet = true;
+        this.genre = genre;
+    }
+
+    /**
+     * Limits the numbers of participants of the bands.
+     *
+     * @param min the smallest number, inclusive, or {@link Long#MIN_VALUE} to leave it unbounded
+     * @param max the biggest number, inclusive, or {@link Long#MAX_VALUE} to leave it unbounded
+     */
+    public void setParticipants(long min, long max) {
+        this.minParticipants = min;
+        this.maxParticipants = max;
+    }
+
+    public String getLabelName() {
+        return labelName;
+    }
+
+    public void setLabelName(String labelName) {
+        this.labelName = labelName;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public void setX(double min, double max) {
+        this.minX = min;
+        this.maxX = max;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public void setY(double min, double max) {
+        this.minY = min;
+        this.maxY = max;
+    }
+
+    /**
+     * Limits the creation dates of the bands.
+     *
+     * @param from the earliest creation date in milliseconds since the epoch, inclusive
+     * @param to   the latest creation date in milliseconds since the epoch, inclusive
+     */
+    public void setCreated(long from, long to) {
+        this.createdFrom = from;
+        this.createdTo = to;
+    }
+
+    public BandField getOrderBy() {
+        return orderBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setOrder(BandField orderBy, boolean descending) {
+        this.orderBy = orderBy;
+        this.descending = descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
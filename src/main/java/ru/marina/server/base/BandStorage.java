@@ -0,0 +1,90 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicBand;
+
+import java.util.function.Consumer;
+
+/**
+ * The BandStorage interface is the primary storage of the bands of a {@link MusicBandStore}, keyed by their ID.
+ * The implementations differ in how the bands are laid out in memory. A storage may keep the band objects
+ * it is given, or only their values, in which case every band it returns is a new object built on demand.
+ * The bands returned by a storage must not be modified. Implementations are not thread-safe.
+ */
+public interface BandStorage extends Iterable<MusicBand> {
+
+    /**
+     * Creates an empty storage of the given layout.
+     *
+     * @param layout "objects" to keep the band objects, "columns" to keep their values in primitive arrays,
+     *               or "offheap" to keep them as records in direct buffers
+     * @param labels the dictionary the labels of the stored bands are interned in
+     * @return the new storage
+     * @throws IllegalArgumentException if the layout is unknown
+     */
+    static BandStorage create(String layout, LabelDictionary labels) {
+        return switch (layout) {
+            case "objects" -> new ObjectBandStorage();
+            case "columns" -> new ColumnarBandStorage();
+            case "offheap" -> new OffHeapBandStorage(labels);
+            default -> throw new IllegalArgumentException("Unknown storage layout: " + layout);
+        };
+    }
+
+    /**
+     * Returns the band with the given ID.
+     *
+     * @param id the ID of the band
+     * @return the band, or null if there is no band with such ID
+     */
+    MusicBand get(long id);
+
+    boolean containsKey(long id);
+
+    /**
+     * Stores a band under its ID, replacing the band with the same ID if there is one.
+     *
+     * @param musicBand the band to store
+     * @return the replaced band, or null if there was none
+     */
+    MusicBand put(MusicBand musicBand);
+
+    /**
+     * Removes the band with the given ID.
+     *
+     * @param id the ID of the band
+     * @return the removed band, or null if there is no band with such ID
+     */
+    MusicBand remove(long id);
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * Makes room for the given number of bands, so that storing them does not grow the storage step by step.
+     *
+     * @param expectedSize the number of bands the storage is expected to hold
+     */
+    void ensureCapacity(int expectedSize);
+
+    /**
+     * Returns the number of positions the bands are spread over. Every band is at one position
+     * from 0 to this number, and some positions may be empty, so the range can be cut into parts
+     * that are scanned separately.
+     *
+     * @return the number of positions
+     */
+    int positions();
+
+    /**
+     * Passes the bands at a range of positions to the action. Disjoint ranges can be read from several threads
+     * at once as long as the storage is not changed.
+     *
+     * @param from   the first position
+     * @param to     the position after the last one
+     * @param action the action to perform on every band
+     */
+    void forEach(int from, int to, Consumer<? super MusicBand> action);
+
+    void clear();
+}
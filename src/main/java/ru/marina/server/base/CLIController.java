@@ -1,16 +1,19 @@
 package ru.marina.server.base;
 
+import ru.marina.base.BinarySnapshot;
 import ru.marina.base.Deserializer;
+import ru.marina.base.ParallelCsvLoader;
 import ru.marina.exceptions.NoFileException;
 import ru.marina.model.MusicBand;
 import ru.marina.exceptions.WrongArgsException;
 import java.io.IOException;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Objects;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The CLIController class represents a controller for a command-line interface that manages a collection of flats.
@@ -18,12 +21,13 @@ import java.util.Scanner;
  */
 public class CLIController {
 
-    private String fileName;
-    private MusicBand musicBand;
-    private HashSet<MusicBand> musicBands;
+    private volatile String fileName;
+    private final MusicBandStore musicBands = new MusicBandStore();
     private final Scanner SCANNER;
-    private Date creationDate;
+    private volatile Date creationDate;
     private final String[] args;
+    private volatile SnapshotManager snapshots;
+    private static final long PARALLEL_LOAD_THRESHOLD = 2L * ParallelCsvLoader.DEFAULT_CHUNK_SIZE;
 
 
     /**
@@ -60,32 +64,71 @@ public class CLIController {
             }
         }
 
-        // Deserialize the file and store the data in a priority queue
+        // Deserialize the file straight into the collection store
         while (true) {
+            musicBands.clear();
             try {
-                musicBands = Deserializer.deserialize(fileName);
+                readCollection(Path.of(fileName));
                 break;
             } catch (IOException e) {
-                System.out.println("Error: Unable to read the file.");
+                System.out.println("Error: Unable to read the file. " + e.getMessage());
                 System.out.print("Please enter another file name: ");
                 fileName = SCANNER.nextLine();
-                musicBands = Deserializer.deserialize(fileName);
-                fileName = SCANNER.nextLine();
-                musicBands = Deserializer.deserialize(fileName);
             }
         }
 
-        if (!musicBands.isEmpty()) {
-            // go through all creation dates and find the oldest one
-            creationDate = new Date(Long.MAX_VALUE);
-            for (MusicBand musicBand : musicBands) {
-                if (musicBand.getCreationDate().before(creationDate)) {
-                    creationDate = musicBand.getCreationDate();
-                }
-            }
+        // Replay the changes made after the file was saved and keep journaling the new ones
+        snapshots = new SnapshotManager(musicBands, Path.of(fileName));
+        int replayed = snapshots.recover();
+        if (replayed > 0) {
+            System.out.println(replayed + " change(s) restored from journal");
+        }
+
+        MusicBand oldest = musicBands.oldest();
+        if (oldest != null) {
+            creationDate = oldest.getCreationDate();
         }
     }
 
+    /**
+     * Reads the collection file into the store. A binary snapshot is mapped into memory, a large CSV file
+     * is read by all cores, and the time of every loading phase is reported.
+     *
+     * @param path the path of the collection file
+     * @throws IOException if the file cannot be read
+     */
+    private void readCollection(Path path) throws IOException {
+        if (BinarySnapshot.isBinary(path)) {
+            long start = System.nanoTime();
+            List<MusicBand> loaded = Files.size(path) == 0 ? List.of() : BinarySnapshot.read(path);
+            long read = System.nanoTime();
+            musicBands.addAll(loaded);
+            long indexed = System.nanoTime();
+
+            System.out.println(loaded.size() + " item(s) loaded from file " + path.getFileName());
+            System.out.println("Load timings: read " + TimeUnit.NANOSECONDS.toMillis(read - start)
+                    + " ms, index build " + TimeUnit.NANOSECONDS.toMillis(indexed - read) + " ms");
+            return;
+        }
+        if (Files.size(path) < PARALLEL_LOAD_THRESHOLD) {
+            Deserializer.deserialize(path.toString(), musicBands::add);
+            return;
+        }
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(ParallelCsvLoader.DEFAULT_CHUNK_SIZE).load(path);
+        long start = System.nanoTime();
+        for (List<MusicBand> chunk : result.getChunks()) {
+            musicBands.addAll(chunk);
+        }
+        long indexMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.println(result.getParsed() + " item(s) loaded from file " + path.getFileName());
+        if (result.getSkipped() > 0) {
+            System.out.println(result.getSkipped() + " invalid item(s) skipped");
+        }
+        System.out.println("Load timings: I/O " + result.getScanMillis() + " ms, parse " + result.getParseMillis()
+                + " ms, index build " + indexMillis + " ms");
+    }
+
     /**
      * Adds a flat to the priority queue of flats.
      *
@@ -114,56 +157,85 @@ public class CLIController {
         this.fileName = fileName;
     }
 
-    public void setExtraMusicBand(MusicBand musicBand) {
-        this.musicBand = musicBand;
+    /**
+     * Returns the store holding the collection of music bands.
+     *
+     * @return the collection store
+     */
+    public MusicBandStore getMusicBands() {
+        return musicBands;
     }
 
-    public MusicBand getExtraMusicBand() {
+    /**
+     * Returns the music band with the given ID.
+     *
+     * @param id the ID of the music band to find
+     * @return the music band with the given ID
+     * @throws WrongArgsException if there is no such music band
+     */
+    public MusicBand getMusicBandByID(Long id) throws WrongArgsException {
+        MusicBand musicBand = musicBands.get(id);
+        if (musicBand == null) {
+            throw new WrongArgsException("There is no element with such ID");
+        }
         return musicBand;
     }
 
     /**
-     * Returns the priority queue of flats.
+     * Replaces the music band with the given ID by a new one, keeping its ID and creation date.
      *
-     * @return the priority queue of flats
+     * @param id      the ID of the music band to update
+     * @param newBand the new values of the music band
+     * @throws WrongArgsException if there is no such music band
      */
-    public HashSet<MusicBand> getMusicBands() {
-        return musicBands;
+    public void setMusicBandById(Long id, MusicBand newBand) throws WrongArgsException {
+        if (!musicBands.replace(id, newBand)) {
+            throw new WrongArgsException("There is no element with such ID");
+        }
     }
 
     /**
-     * Returns the flat with the given ID, or null if there is no such flat.
+     * Removes the music band with the given ID from the collection.
      *
-     * @param id the ID of the flat to find
-     * @return the flat with the given ID, or null if there is no such flat
+     * @param id the ID of the music band to remove
+     * @throws WrongArgsException if there is no such music band
      */
-    public MusicBand getMusicBandByID(Long id) throws WrongArgsException {
-        for (MusicBand flat : musicBands) {
-            if (Objects.equals(id.toString(), flat.getId().toString())) {
-                return flat;
-            }
+    public void removeMusicBandByID(Long id) throws WrongArgsException {
+        if (musicBands.remove(id) == null) {
+            throw new WrongArgsException("There is no element with such ID");
         }
-        throw new WrongArgsException("There is no element with such ID");
     }
 
-    public void setMusicBandById(Long id, MusicBand newBand) throws WrongArgsException {
-        MusicBand existingBand = getMusicBandByID(id);
-        existingBand.setName(newBand.getName());
-        existingBand.setCoordinates(newBand.getCoordinates());
-        existingBand.setCreationDate(String.valueOf(newBand.getCreationDate()));
-        existingBand.setNumberOfParticipants(newBand.getNumberOfParticipants());
-        existingBand.setAlbumsCount(newBand.getAlbumsCount());
-        existingBand.setGenre(newBand.getMusicGenre());
-        existingBand.setLabel(newBand.getLabel());
+    /**
+     * Starts saving the collection to the file in the background.
+     *
+     * @return the future completed when the file has been written
+     */
+    public CompletableFuture<SnapshotManager.Snapshot> saveCollection() {
+        if (snapshots == null) {
+            return CompletableFuture.failedFuture(new IOException("The collection has not been loaded"));
+        }
+        return snapshots.snapshot();
     }
 
     /**
-     * Removes the flat with the given ID from the priority queue of flats.
+     * Returns the manager of the collection file and its journal.
      *
-     * @param id the ID of the flat to remove
+     * @return the snapshot manager, or null if the collection has not been loaded
      */
-    public void removeMusicBandByID(Long id) throws WrongArgsException {
-        musicBands.remove(getMusicBandByID(id));
+    public SnapshotManager getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Waits for the started snapshots and closes the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    public void close() throws IOException {
+        if (snapshots != null) {
+            snapshots.close();
+        }
     }
 
     /**
@@ -176,13 +248,12 @@ public class CLIController {
     }
 
     /**
-     * Returns the creation date of the flats in the format "dd.MM.yyyy HH:mm:ss".
+     * Returns the creation date of the collection, which is the creation date of its oldest item.
      *
-     * @return the creation date of the flats
+     * @return the creation date, or null if the collection was empty when loaded
      */
-    public String getCreationDate() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
-        return creationDate.toInstant().atZone(ZoneId.systemDefault()).format(formatter);
+    public Date getCreationDate() {
+        return creationDate;
     }
 
 }
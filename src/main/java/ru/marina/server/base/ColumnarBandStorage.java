@@ -0,0 +1,188 @@
+package ru.marina.server.base;
+
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The ColumnarBandStorage class keeps the values of the bands in parallel arrays, one array per field,
+ * instead of keeping the band objects. A band takes one slot of every array: its ID, coordinates,
+ * creation date, numbers of participants and albums and its genre are stored as primitives, its name
+ * and its label as references, the label being shared with all equal labels of the store.
+ * The slots are kept dense: removing a band moves the band of the last slot into the freed one.
+ * <p>
+ * The slot of an ID is found through a {@link SlotTable}, which reads the IDs from the ID array.
+ * Every band returned is a new object built from its slot.
+ */
+public class ColumnarBandStorage implements BandStorage {
+    private static final int MIN_CAPACITY = 16;
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+
+    private long[] ids = new long[0];
+    private String[] names = new String[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private long[] creationDates = new long[0];
+    private int[] participants = new int[0];
+    private int[] albums = new int[0];
+    private byte[] genres = new byte[0];
+    private Label[] labels = new Label[0];
+    private int size;
+    private final SlotTable slots = new SlotTable(slot -> ids[slot]);
+
+    @Override
+    public MusicBand get(long id) {
+        int slot = slots.find(id);
+        return slot >= 0 ? view(slot) : null;
+    }
+
+    @Override
+    public boolean containsKey(long id) {
+        return slots.find(id) >= 0;
+    }
+
+    @Override
+    public MusicBand put(MusicBand musicBand) {
+        long id = musicBand.getId();
+        int slot = slots.find(id);
+        if (slot >= 0) {
+            MusicBand replaced = view(slot);
+            store(slot, musicBand);
+            return replaced;
+        }
+        ensureCapacity(size + 1);
+        store(size, musicBand);
+        slots.insert(id, size++);
+        return null;
+    }
+
+    @Override
+    public MusicBand remove(long id) {
+        int slot = slots.find(id);
+        if (slot < 0) {
+            return null;
+        }
+        MusicBand removed = view(slot);
+        slots.remove(id);
+
+        int last = size - 1;
+        if (slot != last) {
+            slots.move(ids[last], slot);
+            ids[slot] = ids[last];
+            names[slot] = names[last];
+            xs[slot] = xs[last];
+            ys[slot] = ys[last];
+            creationDates[slot] = creationDates[last];
+            participants[slot] = participants[last];
+            albums[slot] = albums[last];
+            genres[slot] = genres[last];
+            labels[slot] = labels[last];
+        }
+        names[last] = null;
+        labels[last] = null;
+        size--;
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > ids.length) {
+            resize(Math.max(expectedSize, Math.max(MIN_CAPACITY, ids.length * 2)));
+        }
+        slots.ensureCapacity(expectedSize);
+    }
+
+    /**
+     * Removes all bands and gives the arrays up, so clearing a big collection does not keep them alive.
+     */
+    @Override
+    public void clear() {
+        slots.clear();
+        size = 0;
+        resize(0);
+    }
+
+    @Override
+    public int positions() {
+        return size;
+    }
+
+    @Override
+    public void forEach(int from, int to, Consumer<? super MusicBand> action) {
+        for (int slot = from; slot < to; slot++) {
+            action.accept(view(slot));
+        }
+    }
+
+    @Override
+    public Iterator<MusicBand> iterator() {
+        return new Iterator<>() {
+            private int slot;
+
+            @Override
+            public boolean hasNext() {
+                return slot < size;
+            }
+
+            @Override
+            public MusicBand next() {
+                if (slot >= size) {
+                    throw new NoSuchElementException();
+                }
+                return view(slot++);
+            }
+        };
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        creationDates = Arrays.copyOf(creationDates, capacity);
+        participants = Arrays.copyOf(participants, capacity);
+        albums = Arrays.copyOf(albums, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+    }
+
+    private void store(int slot, MusicBand musicBand) {
+        ids[slot] = musicBand.getId();
+        names[slot] = musicBand.getName();
+        xs[slot] = musicBand.getCoordinates().getX();
+        ys[slot] = musicBand.getCoordinates().getY();
+        creationDates[slot] = musicBand.getCreationDate().getTime();
+        participants[slot] = musicBand.getNumberOfParticipants();
+        albums[slot] = musicBand.getAlbumsCount();
+        genres[slot] = musicBand.getMusicGenre() == null ? -1 : (byte) musicBand.getMusicGenre().ordinal();
+        labels[slot] = musicBand.getLabel();
+    }
+
+    private MusicBand view(int slot) {
+        return new MusicBand(ids[slot],
+                names[slot],
+                new Coordinates(xs[slot], ys[slot]),
+                new Date(creationDates[slot]),
+                participants[slot],
+                albums[slot],
+                genres[slot] < 0 ? null : GENRES[genres[slot]],
+                labels[slot]);
+    }
+}
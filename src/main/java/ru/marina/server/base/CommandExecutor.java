@@ -38,18 +38,26 @@ public class CommandExecutor {
         commands.put("sum_of_number_of_participants", new SumOfNumberOfParticipants(controller));
         commands.put("average_of_number_of_participants", new AverageOfNumberOfParticipants(controller));
         commands.put("print_unique_label", new PrintUniqueLabel(controller));
+        commands.put("filter", new Filter(controller));
+        commands.put("in_rectangle", new InRectangle(controller));
+        commands.put("nearest", new Nearest(controller));
     }
 
     /**
-     * Starts the interactive mode for the user to input commands
+     * Executes the command described by the context
+     * @param context the context of the request
+     * @return the response of the command
      */
-    public Response handleCommand(String[] line) throws NotEnoughArgsException,
-                                                        NoPermissionException,
-                                                        WrongArgsException,
-                                                        IOException
+    public Response handleCommand(CommandContext context) throws NotEnoughArgsException,
+                                                                 NoPermissionException,
+                                                                 WrongArgsException,
+                                                                 IOException
     {
-        return commands.get(line[0]).execute(line, false, null);
-
+        Command command = getCommand(context.getArgs()[0]);
+        if (command == null) {
+            throw new WrongArgsException("Unknown command: " + context.getArgs()[0]);
+        }
+        return command.execute(context);
     }
 
     /**
@@ -0,0 +1,396 @@
+package ru.marina.server.base;
+
+import ru.marina.base.BinaryCodec;
+import ru.marina.model.MusicBand;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * The Journal class is a write-ahead log of the changes made to the collection.
+ * Every change is appended as a small binary record before it is applied, so the changes made
+ * since the last save survive a crash and are replayed on top of the saved file at the next start.
+ * <p>
+ * Records are collected in memory and written by a flusher thread, which forces them to disk with one
+ * fsync per batch. The records appended while a batch is being forced go into the next batch,
+ * so many concurrent changes share the cost of a single fsync. Waiting is done on a lock condition
+ * rather than a monitor, so virtual threads waiting for their records do not pin their carriers.
+ * <p>
+ * When a batch cannot be written, the journal stops: the batches after it are never written, so the file
+ * never holds a change without the ones before it, and every following change is refused before it is applied.
+ * <p>
+ * A record is the length of its body, the CRC32 of the body and the body itself: the record type
+ * followed by its data. A record cut short by a crash or damaged on disk ends the replay and is cut off.
+ */
+public class Journal implements Closeable {
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger logger = Logger.getLogger(Journal.class.getName());
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Thread flusher;
+    private final CRC32 crc = new CRC32();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appended;
+    private long durable;
+    private boolean closed;
+    private IOException failure;
+
+    private Journal(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Opens the journal for appending, creating the file if it does not exist.
+     *
+     * @param path the path of the journal file
+     * @return the opened journal
+     * @throws IOException if the file cannot be opened
+     */
+    public static Journal open(Path path) throws IOException {
+        return open(path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Opens the journal for appending to an opened channel, which the journal closes when it is closed.
+     *
+     * @param path    the path of the journal file, used in messages
+     * @param channel the channel of the journal file
+     * @return the opened journal
+     * @throws IOException if the end of the channel cannot be found
+     */
+    static Journal open(Path path, FileChannel channel) throws IOException {
+        channel.position(channel.size());
+        Journal journal = new Journal(path, channel);
+        journal.flusher.start();
+        return journal;
+    }
+
+    /**
+     * Applies the records of the journal file to the store, reading the file one record at a time.
+     * A damaged or incomplete record at the end of the file is cut off, it belongs to a change
+     * that was never confirmed to the client. A whole record that cannot be applied is skipped and logged,
+     * and the records after it are still applied; the file is left as it is.
+     *
+     * @param path  the path of the journal file
+     * @param store the store to apply the records to
+     * @return the number of applied records
+     * @throws IOException if the file cannot be read
+     */
+    public static int replay(Path path, MusicBandStore store) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            ByteBuffer body = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            int applied = 0;
+            long valid = 0;
+            while (size - valid >= RECORD_HEADER_SIZE) {
+                header.clear();
+                readFully(channel, header, valid);
+                int length = header.getInt(0);
+                int checksum = header.getInt(Integer.BYTES);
+                if (length <= 0 || length > size - valid - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                if (body.capacity() < length) {
+                    body = ByteBuffer.allocate(Math.max(length, body.capacity() * 2));
+                }
+                body.clear().limit(length);
+                readFully(channel, body, valid + RECORD_HEADER_SIZE);
+                body.flip();
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                try {
+                    apply(body, store);
+                    applied++;
+                } catch (RuntimeException e) {
+                    logger.warning("Journal " + path + " has a record at " + valid + " that cannot be applied, "
+                            + "it is skipped: " + e.getMessage());
+                }
+                valid += RECORD_HEADER_SIZE + length;
+            }
+            if (valid < size) {
+                logger.warning("Journal " + path + " has a damaged tail of " + (size - valid) + " bytes, it is cut off");
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            return applied;
+        }
+    }
+
+    /**
+     * Appends a record of a music band being added or replaced.
+     *
+     * @param musicBand the music band as it is stored
+     * @throws UncheckedIOException if the journal is closed or has failed to write
+     */
+    public void appendPut(MusicBand musicBand) {
+        int bodySize = 1 + BinaryCodec.sizeOf(musicBand);
+        lock.lock();
+        try {
+            int start = startRecord(bodySize);
+            pending.put(PUT);
+            BinaryCodec.write(pending, musicBand);
+            finishRecord(start, bodySize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record of music bands being removed.
+     *
+     * @param ids the IDs of the removed music bands
+     * @throws UncheckedIOException if the journal is closed or has failed to write
+     */
+    public void appendRemove(long... ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        int bodySize = 1 + Integer.BYTES + ids.length * Long.BYTES;
+        lock.lock();
+        try {
+            int start = startRecord(bodySize);
+            pending.put(REMOVE);
+            pending.putInt(ids.length);
+            for (long id : ids) {
+                pending.putLong(id);
+            }
+            finishRecord(start, bodySize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record of the collection being cleared.
+     *
+     * @throws UncheckedIOException if the journal is closed or has failed to write
+     */
+    public void appendClear() {
+        lock.lock();
+        try {
+            int start = startRecord(1);
+            pending.put(CLEAR);
+            finishRecord(start, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the position after the last appended record.
+     *
+     * @return the position after the last appended record
+     */
+    public long position() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the records up to the given position are forced to disk.
+     *
+     * @param position the position returned by {@link #position()}
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    public void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal write failed", failure);
+                }
+                changed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the journal"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the error that stopped the journal.
+     *
+     * @return the error of the failed write, or null if every write so far has succeeded
+     */
+    public IOException getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Writes the remaining records and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private int startRecord(int bodySize) {
+        if (closed) {
+            throw new UncheckedIOException(new IOException("Journal is closed"));
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed, no more changes are accepted", failure);
+        }
+        int required = RECORD_HEADER_SIZE + bodySize;
+        if (pending.remaining() < required) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + required));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.position(start + RECORD_HEADER_SIZE);
+        return start;
+    }
+
+    private void finishRecord(int start, int bodySize) {
+        crc.reset();
+        crc.update(pending.slice(start + RECORD_HEADER_SIZE, bodySize));
+        pending.putInt(start, bodySize);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+        appended += RECORD_HEADER_SIZE + bodySize;
+        changed.signalAll();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long batchEnd;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    changed.await();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                batchEnd = appended;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+                logger.severe("Cannot write the journal " + path + ": " + e.getMessage());
+            } finally {
+                writing.clear();
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    // the records appended meanwhile must not be written after the lost batch
+                    failure = error;
+                    pending.clear();
+                    changed.signalAll();
+                    return;
+                }
+                durable = Math.max(durable, batchEnd);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Fills the buffer with the bytes of the file starting at the position.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Journal ended while reading a record");
+            }
+            position += read;
+        }
+    }
+
+    private static void apply(ByteBuffer body, MusicBandStore store) {
+        byte type = body.get();
+        switch (type) {
+            case PUT -> store.add(BinaryCodec.readMusicBand(body));
+            case REMOVE -> {
+                int count = body.getInt();
+                for (int i = 0; i < count; i++) {
+                    store.remove(body.getLong());
+                }
+            }
+            case CLEAR -> store.clear();
+            default -> throw new IllegalArgumentException("Unknown journal record type: " + type);
+        }
+    }
+}
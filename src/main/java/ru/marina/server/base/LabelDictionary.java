@@ -0,0 +1,132 @@
+package ru.marina.server.base;
+
+import ru.marina.model.Label;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The LabelDictionary class shares one Label object among all bands with equal labels.
+ * Every distinct label is kept together with the number of bands that refer to it,
+ * and is dropped when the last of them is removed. Every kept label also has a number, which does not change
+ * while any band refers to the label, so a storage can keep the number instead of the label;
+ * the number of a dropped label is given to the next new one. The class is not thread-safe,
+ * and the labels it returns must not be modified.
+ */
+public class LabelDictionary {
+    private final Map<Label, Entry> entries = new HashMap<>();
+    private final List<Entry> numbered = new ArrayList<>();
+    private final ArrayDeque<Integer> freeNumbers = new ArrayDeque<>();
+
+    /**
+     * Returns the shared label equal to the given one and counts one more band referring to it.
+     *
+     * @param label the label of a band
+     * @return the shared label
+     */
+    public Label intern(Label label) {
+        Entry entry = entries.get(label);
+        if (entry == null) {
+            entry = new Entry(label, freeNumbers.isEmpty() ? numbered.size() : freeNumbers.pop());
+            if (entry.number == numbered.size()) {
+                numbered.add(entry);
+            } else {
+                numbered.set(entry.number, entry);
+            }
+            entries.put(label, entry);
+        }
+        entry.references++;
+        return entry.label;
+    }
+
+    /**
+     * Counts one band less referring to the label.
+     *
+     * @param label the label of a removed band
+     */
+    public void release(Label label) {
+        Entry entry = entries.get(label);
+        if (entry != null && --entry.references == 0) {
+            entries.remove(label);
+            numbered.set(entry.number, null);
+            freeNumbers.push(entry.number);
+        }
+    }
+
+    /**
+     * Returns the number of a label that bands refer to.
+     *
+     * @param label the label, equal to an interned one
+     * @return the number of the label
+     * @throws IllegalArgumentException if no band refers to the label
+     */
+    public int numberOf(Label label) {
+        Entry entry = entries.get(label);
+        if (entry == null) {
+            throw new IllegalArgumentException("Label is not in the dictionary: " + label.getName());
+        }
+        return entry.number;
+    }
+
+    /**
+     * Returns the shared label with the given number.
+     *
+     * @param number the number returned by {@link #numberOf(Label)}
+     * @return the shared label
+     */
+    public Label label(int number) {
+        return numbered.get(number).label;
+    }
+
+    /**
+     * Returns the distinct labels.
+     *
+     * @return a new list of the shared labels
+     */
+    public List<Label> labels() {
+        List<Label> labels = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+
+    /**
+     * Checks whether any of the labels has the given name.
+     *
+     * @param name the name of the label
+     * @return true if there is a label with the name
+     */
+    public boolean containsName(String name) {
+        for (Label label : entries.keySet()) {
+            if (name.equals(label.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        numbered.clear();
+        freeNumbers.clear();
+    }
+
+    private static final class Entry {
+        private final Label label;
+        private final int number;
+        private int references;
+
+        private Entry(Label label, int number) {
+            this.label = label;
+            this.number = number;
+        }
+    }
+}
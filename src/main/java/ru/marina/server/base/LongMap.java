@@ -0,0 +1,272 @@
+package ru.marina.server.base;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The LongMap class is a hash map with primitive long keys.
+ * Keys are kept in a plain long array with open addressing and linear probing,
+ * so looking a value up neither boxes the key nor allocates anything.
+ * The key 0 marks an empty slot and cannot be stored.
+ *
+ * @param <V> the type of the values
+ */
+public class LongMap<V> implements Iterable<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final double MAX_LOAD = 0.6;
+
+    private final int initialCapacity;
+    private long[] keys;
+    private Object[] values;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Constructs an empty LongMap.
+     */
+    public LongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty LongMap that can hold the specified number of entries without resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public LongMap(int expectedSize) {
+        initialCapacity = capacityFor(expectedSize);
+        allocate(initialCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value stored for the key.
+     *
+     * @param key the key
+     * @return the value, or null if there is no value for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Stores a value for the key, replacing the previous one.
+     *
+     * @param key   the key, not 0
+     * @param value the value
+     * @return the previous value, or null if there was none
+     * @throws IllegalArgumentException if the key is 0
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 cannot be stored");
+        }
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the value stored for the key.
+     * The following entries of the probe chain are shifted back, so no tombstones are left behind.
+     *
+     * @param key the key
+     * @return the removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = (V) values[slot];
+
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slotOf(keys[next]);
+            boolean canMove = next > gap
+                    ? home <= gap || home > next
+                    : home <= gap && home > next;
+            if (canMove) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Grows the map so that it can hold the specified number of entries without resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Removes all entries. A map that has grown past its initial capacity shrinks back to it,
+     * so clearing a big collection does not keep its tables alive.
+     */
+    public void clear() {
+        if (keys.length > initialCapacity) {
+            allocate(initialCapacity);
+        } else {
+            Arrays.fill(keys, 0);
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the values. The map must not be modified while it is iterated.
+     *
+     * @return an iterator over the values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<>() {
+            private int slot = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (slot >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                V value = (V) values[slot];
+                slot = advance(slot + 1);
+                return value;
+            }
+
+            private int advance(int from) {
+                while (from < keys.length && keys[from] == 0) {
+                    from++;
+                }
+                return from;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of slots of the table, empty or not.
+     *
+     * @return the capacity of the table
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Passes the values of a range of slots to the action. Disjoint ranges can be read from several threads
+     * at once as long as the map is not changed.
+     *
+     * @param from   the first slot
+     * @param to     the slot after the last one
+     * @param action the action to perform on every value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(int from, int to, Consumer<? super V> action) {
+        for (int slot = from; slot < to; slot++) {
+            if (keys[slot] != 0) {
+                action.accept((V) values[slot]);
+            }
+        }
+    }
+
+    private int find(long key) {
+        if (key == 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
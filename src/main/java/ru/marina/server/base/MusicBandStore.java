@@ -0,0 +1,670 @@
+package ru.marina.server.base;
+
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The MusicBandStore class keeps the collection of music bands in memory.
+ * Bands are kept by their ID in a {@link BandStorage}, so finding, updating and removing a band by its ID
+ * takes constant time instead of a scan over the whole collection. The storage either keeps the band objects
+ * or, with the {@code store.layout} system property set to {@code columns} or {@code offheap}, only their
+ * values in primitive arrays or in records outside the heap, building a band object whenever one is read.
+ * Aggregates of the numbers of participants are kept up to date on every change, so their sum and average
+ * are known without looking at the bands. The bands are kept sorted by their creation date, so the bands
+ * created before a moment are removed without a scan, and by their number of participants, so the collection
+ * can be listed in that order page by page and the smallest and biggest number are read from its ends. A {@link SpatialGrid} of their
+ * coordinates finds the bands inside a rectangle or nearest to a point. Equal labels are shared
+ * by all their bands through a {@link LabelDictionary}, which also knows the distinct labels of the collection.
+ * A {@link BandQuery} is answered from the indexes whenever they narrow it down. A query that has to check
+ * every band of a big collection is split into parts of the storage checked on a fork-join pool.
+ * <p>
+ * The store is safe to use from many threads. Reads share a read lock and run in parallel,
+ * while every change takes the write lock, so a reader sees either all of a change or none of it.
+ * Stored bands are never modified: an update puts a new band object in place of the old one.
+ * Several operations that must happen together, like a check followed by an insert,
+ * can be run under one lock with {@link #read(Supplier)} and {@link #write(Supplier)}.
+ * <p>
+ * When a {@link Journal} is attached, every change is appended to it before it is applied,
+ * and a change returns only after its record has been forced to disk.
+ * <p>
+ * A change is applied under the write lock but becomes durable only after the lock is released, so other
+ * threads may already have read it when the journal fails to write it. Such a change is not undone; instead
+ * the store is marked failed. A failed store still answers reads, but refuses every following change and
+ * every switch of the journal, so no snapshot can save a change that was never made durable. The collection
+ * file and the journal keep the durable changes only, and a restart replays exactly those.
+ */
+public class MusicBandStore implements Iterable<MusicBand> {
+    private final BandStorage byId;
+    private final SortedIndex byCreationDate = new SortedIndex(musicBand -> musicBand.getCreationDate().getTime());
+    private final SortedIndex byParticipants = new SortedIndex(MusicBand::getNumberOfParticipants);
+    private final ParticipantAggregates participants = new ParticipantAggregates(byParticipants);
+    private final SpatialGrid byCoordinates = new SpatialGrid();
+    private final LabelDictionary labels = new LabelDictionary();
+    /**
+     * A query reads a range of a sorted index, or the cells of the spatial grid, instead of scanning
+     * when they hold at most this share of the bands, since looking the bands up by ID one by one
+     * is slower than a scan.
+     */
+    private static final int RANGE_SHARE = 4;
+    private static final BandField[] INDEXED_FIELDS = {BandField.PARTICIPANTS, BandField.CREATED};
+    /**
+     * A full scan of fewer bands than this runs on the calling thread, since handing the parts to the pool
+     * costs more than it saves.
+     */
+    static final int PARALLEL_SCAN_THRESHOLD = 20_000;
+    private static final int MIN_SCAN_PART = 4096;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ForkJoinPool scanPool;
+    private volatile Journal journal;
+    private volatile IOException failure;
+
+    /**
+     * Constructs an empty store with the storage layout named by the {@code store.layout} system property,
+     * which keeps the band objects by default.
+     */
+    public MusicBandStore() {
+        this(System.getProperty("store.layout", "objects"));
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param layout the layout of the storage of the bands, as accepted by {@link BandStorage#create}
+     */
+    public MusicBandStore(String layout) {
+        this(layout, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an empty store that checks the parts of a full scan on the given pool.
+     *
+     * @param layout   the layout of the storage of the bands, as accepted by {@link BandStorage#create}
+     * @param scanPool the pool of the full scans
+     */
+    MusicBandStore(String layout, ForkJoinPool scanPool) {
+        this.byId = BandStorage.create(layout, labels);
+        this.scanPool = scanPool;
+    }
+
+    /**
+     * Attaches the journal that records the following changes of the store.
+     *
+     * @param journal the journal, or null to stop journaling
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Runs an action under the read lock, so the store does not change while the action runs.
+     *
+     * @param action the action to run
+     * @param <T>    the type of the result
+     * @return the result of the action
+     */
+    public <T> T read(Supplier<T> action) {
+        return locked(lock.readLock(), action);
+    }
+
+    /**
+     * Runs an action under the write lock, so no other thread reads or changes the store while the action runs.
+     * When the journal is attached, the outermost call waits, after releasing the lock,
+     * until the changes made by the action are durable.
+     *
+     * @param action the action to run
+     * @param <T>    the type of the result
+     * @return the result of the action
+     */
+    public <T> T write(Supplier<T> action) {
+        T result;
+        Journal current;
+        long position;
+        lock.writeLock().lock();
+        try {
+            checkNotFailed();
+            result = action.get();
+            current = journal;
+            position = current != null ? current.position() : 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (current != null && !lock.isWriteLockedByCurrentThread()) {
+            try {
+                current.awaitDurable(position);
+            } catch (UncheckedIOException e) {
+                fail(e.getCause());
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks the store failed after a change applied in memory could not be made durable.
+     *
+     * @param cause the error of the journal
+     */
+    void fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+    }
+
+    /**
+     * Checks whether a change applied in memory could not be made durable, see {@link #fail(IOException)}.
+     *
+     * @return true if the store refuses changes and snapshots
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    private void checkNotFailed() {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new UncheckedIOException("A change was not saved to the journal, the store accepts no more changes",
+                    cause);
+        }
+    }
+
+    /**
+     * Adds a music band to the store, replacing a band with the same ID if there is one.
+     *
+     * @param musicBand the music band to add
+     */
+    public void add(MusicBand musicBand) {
+        write(() -> {
+            if (journal != null) {
+                journal.appendPut(musicBand);
+            }
+            put(musicBand);
+            return null;
+        });
+    }
+
+    /**
+     * Adds all the music bands to the store.
+     *
+     * @param musicBands the music bands to add
+     */
+    public void addAll(Collection<MusicBand> musicBands) {
+        write(() -> {
+            byId.ensureCapacity(byId.size() + musicBands.size());
+            for (MusicBand musicBand : musicBands) {
+                if (journal != null) {
+                    journal.appendPut(musicBand);
+                }
+                put(musicBand);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns the music band with the given ID.
+     *
+     * @param id the ID of the music band
+     * @return the music band, or null if there is no band with such ID
+     */
+    public MusicBand get(long id) {
+        return read(() -> byId.get(id));
+    }
+
+    /**
+     * Replaces the music band with the given ID by a new one.
+     * The new band takes over the ID and the creation date of the replaced band.
+     *
+     * @param id        the ID of the music band to replace
+     * @param musicBand the new values of the music band
+     * @return true if the band was replaced, false if there is no band with such ID
+     */
+    public boolean replace(long id, MusicBand musicBand) {
+        return write(() -> {
+            MusicBand existing = byId.get(id);
+            if (existing == null) {
+                return false;
+            }
+            musicBand.setId(id);
+            musicBand.setCreationDate(existing.getCreationDate());
+            if (journal != null) {
+                journal.appendPut(musicBand);
+            }
+            put(musicBand);
+            return true;
+        });
+    }
+
+    /**
+     * Removes the music band with the given ID.
+     *
+     * @param id the ID of the music band
+     * @return the removed music band, or null if there is no band with such ID
+     */
+    public MusicBand remove(long id) {
+        return write(() -> {
+            if (journal != null && byId.containsKey(id)) {
+                journal.appendRemove(id);
+            }
+            MusicBand removed = byId.remove(id);
+            if (removed != null) {
+                unindex(removed);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Removes all music bands matching the filter.
+     *
+     * @param filter the condition of removal
+     * @return the number of removed bands
+     */
+    public int removeIf(Predicate<MusicBand> filter) {
+        return write(() -> {
+            List<MusicBand> matching = new ArrayList<>();
+            for (MusicBand musicBand : byId) {
+                if (filter.test(musicBand)) {
+                    matching.add(musicBand);
+                }
+            }
+            if (journal != null) {
+                journal.appendRemove(matching.stream().mapToLong(MusicBand::getId).toArray());
+            }
+            for (MusicBand musicBand : matching) {
+                byId.remove(musicBand.getId());
+                unindex(musicBand);
+            }
+            return matching.size();
+        });
+    }
+
+    /**
+     * Removes all music bands created strictly before the date.
+     * Only the removed bands are looked at.
+     *
+     * @param date the creation date of the first band to keep
+     * @return the number of removed bands
+     */
+    public int removeCreatedBefore(Date date) {
+        return write(() -> {
+            long[] matching = byCreationDate.headBefore(date.getTime());
+            if (journal != null && matching.length > 0) {
+                journal.appendRemove(matching);
+            }
+            for (long id : matching) {
+                unindex(byId.remove(id));
+            }
+            return matching.length;
+        });
+    }
+
+    /**
+     * Removes all music bands.
+     *
+     * @return the number of removed bands
+     */
+    public int clear() {
+        return write(() -> {
+            int removed = byId.size();
+            if (journal != null) {
+                journal.appendClear();
+            }
+            byId.clear();
+            participants.clear();
+            byCreationDate.clear();
+            byParticipants.clear();
+            byCoordinates.clear();
+            labels.clear();
+            return removed;
+        });
+    }
+
+    public int size() {
+        return read(byId::size);
+    }
+
+    public boolean isEmpty() {
+        return read(byId::isEmpty);
+    }
+
+    /**
+     * Returns the smallest number of participants of the stored bands.
+     *
+     * @return the smallest number of participants, or an empty optional if the store is empty
+     */
+    public OptionalInt minParticipants() {
+        return read(participants::min);
+    }
+
+    /**
+     * Returns the biggest number of participants of the stored bands.
+     *
+     * @return the biggest number of participants, or an empty optional if the store is empty
+     */
+    public OptionalInt maxParticipants() {
+        return read(participants::max);
+    }
+
+    /**
+     * Returns a summary of the numbers of participants of the stored bands.
+     *
+     * @return the summary at the moment of the call
+     */
+    public ParticipantStatistics participantStatistics() {
+        return read(participants::statistics);
+    }
+
+    /**
+     * Returns the distinct labels of the stored bands.
+     *
+     * @return a new list of the labels
+     */
+    public List<Label> distinctLabels() {
+        return read(labels::labels);
+    }
+
+    /**
+     * Runs a query, choosing the cheapest way to find its bands:
+     * <ul>
+     * <li>a label name that no label has matches nothing, which the label dictionary tells at once;</li>
+     * <li>a range of the number of participants or of the creation date holding few bands is read
+     * from its sorted index, and only the bands in it are checked;</li>
+     * <li>a rectangle of coordinates holding few bands is read from the cells of the spatial grid it overlaps;</li>
+     * <li>bands ordered by an indexed field are read from its index in order until the limit is reached;</li>
+     * <li>otherwise every band is checked.</li>
+     * </ul>
+     *
+     * @param query the query
+     * @return the found bands and the chosen way
+     */
+    public BandQuery.Result query(BandQuery query) {
+        return read(() -> {
+            if (query.getLabelName() != null && !labels.containsName(query.getLabelName())) {
+                return new BandQuery.Result(List.of(), "label dictionary, no such label");
+            }
+            BandField rangeField = null;
+            int candidates = Integer.MAX_VALUE;
+            for (BandField field : INDEXED_FIELDS) {
+                if (query.isBounded(field)) {
+                    int count = indexOf(field).count(query.lowerBound(field), query.upperBound(field));
+                    if (count < candidates) {
+                        rangeField = field;
+                        candidates = count;
+                    }
+                }
+            }
+            if (query.isBoxed()) {
+                int count = byCoordinates.countCandidates(query.getMinX(), query.getMaxX(),
+                        query.getMinY(), query.getMaxY());
+                if (count < candidates && count <= byId.size() / RANGE_SHARE) {
+                    return new BandQuery.Result(inside(query), "cells of the spatial grid, " + count + " candidate(s)");
+                }
+            }
+            if (rangeField != null && candidates <= byId.size() / RANGE_SHARE) {
+                return new BandQuery.Result(walk(query, rangeField),
+                        "range of the " + rangeField.name().toLowerCase(Locale.ROOT) + " index, " + candidates + " candidate(s)");
+            }
+            BandField orderBy = query.getOrderBy();
+            if (!query.isDescending() && query.getLimit() < byId.size()
+                    && (orderBy == BandField.PARTICIPANTS || orderBy == BandField.CREATED)) {
+                return new BandQuery.Result(walk(query, orderBy),
+                        "walk of the " + orderBy.name().toLowerCase(Locale.ROOT) + " index in order");
+            }
+            return new BandQuery.Result(scan(query), "full scan");
+        });
+    }
+
+    /**
+     * Finds the bands nearest to a point from the spatial grid, looking only at the cells around the point.
+     * Bands at the same distance are ordered by their ID. A count bigger than the collection
+     * is cut down to its size, so the search never holds room for more bands than there are.
+     *
+     * @param x the x of the point
+     * @param y the y of the point
+     * @param k the largest number of bands to return
+     * @return a new list of the bands, nearest first
+     */
+    public List<MusicBand> nearest(double x, double y, int k) {
+        return read(() -> resolve(byCoordinates.nearest(x, y, Math.min(k, byId.size()))));
+    }
+
+    /**
+     * Returns a page of the bands sorted by their number of participants and then by their ID.
+     *
+     * @param offset the number of bands to skip
+     * @param limit  the largest number of bands to return
+     * @return a new list of the bands
+     */
+    public List<MusicBand> pageByParticipants(int offset, int limit) {
+        return read(() -> resolve(byParticipants.page(offset, limit)));
+    }
+
+    /**
+     * Returns a page of the bands sorted by their number of participants and then by their ID,
+     * starting right after the given position. Reading a listing page by page this way
+     * never misses or repeats a band that stays in the store.
+     *
+     * @param participants the number of participants of the position
+     * @param id           the ID of the position
+     * @param limit        the largest number of bands to return
+     * @return a new list of the bands
+     */
+    public List<MusicBand> pageByParticipantsAfter(int participants, long id, int limit) {
+        return read(() -> resolve(byParticipants.pageAfter(participants, id, limit)));
+    }
+
+    /**
+     * Returns the oldest music band.
+     *
+     * @return the band with the earliest creation date, or null if the store is empty
+     */
+    public MusicBand oldest() {
+        return read(() -> {
+            OptionalLong first = byCreationDate.first();
+            return first.isPresent() ? byId.get(first.getAsLong()) : null;
+        });
+    }
+
+    /**
+     * Copies the music bands into a list. The copy is taken under the read lock,
+     * so it is a consistent point-in-time view of the collection.
+     *
+     * @return a new list with all music bands of the store
+     */
+    public List<MusicBand> values() {
+        return read(() -> {
+            List<MusicBand> copy = new ArrayList<>(byId.size());
+            for (MusicBand musicBand : byId) {
+                copy.add(musicBand);
+            }
+            return copy;
+        });
+    }
+
+    /**
+     * Copies the music bands and attaches a new journal in one step under the write lock,
+     * so the copy holds exactly the changes recorded by the journals attached before.
+     *
+     * @param next the journal for the following changes
+     * @return a new list with all music bands of the store
+     * @throws UncheckedIOException if the store has failed or the attached journal has failed to write
+     */
+    public List<MusicBand> switchJournal(Journal next) {
+        return write(() -> {
+            IOException lost = journal != null ? journal.getFailure() : null;
+            if (lost != null) {
+                fail(lost);
+                checkNotFailed();
+            }
+            List<MusicBand> copy = values();
+            journal = next;
+            return copy;
+        });
+    }
+
+    /**
+     * Returns an iterator over a point-in-time copy of the collection.
+     *
+     * @return an iterator over the music bands
+     */
+    @Override
+    public Iterator<MusicBand> iterator() {
+        return values().iterator();
+    }
+
+    /**
+     * Returns a stream over a point-in-time copy of the collection.
+     *
+     * @return a stream of the music bands
+     */
+    public Stream<MusicBand> stream() {
+        return values().stream();
+    }
+
+    private SortedIndex indexOf(BandField field) {
+        return field == BandField.PARTICIPANTS ? byParticipants : byCreationDate;
+    }
+
+    /**
+     * Checks the bands in the range of the query of an indexed field, in the order of the index.
+     * If the query is ordered by that field, the walk stops at the limit. Must be called under a lock.
+     */
+    private List<MusicBand> walk(BandQuery query, BandField field) {
+        boolean ordered = query.getOrderBy() == field && !query.isDescending();
+        List<MusicBand> found = new ArrayList<>();
+        indexOf(field).forEachBetween(query.lowerBound(field), query.upperBound(field), id -> {
+            MusicBand musicBand = byId.get(id);
+            if (query.test(musicBand)) {
+                found.add(musicBand);
+            }
+            return !ordered || found.size() < query.getLimit();
+        });
+        if (!ordered) {
+            found.sort(query.order());
+        }
+        return found.size() > query.getLimit() ? new ArrayList<>(found.subList(0, query.getLimit())) : found;
+    }
+
+    /**
+     * Checks every band against the query. The positions of a big storage are cut into parts of roughly
+     * a quarter of the share of every thread of the pool, and the bands found in the parts are joined
+     * in position order. Must be called under a lock, which keeps the storage unchanged while the pool reads it.
+     */
+    private List<MusicBand> scan(BandQuery query) {
+        int positions = byId.positions();
+        int parallelism = scanPool.getParallelism();
+        List<MusicBand> found;
+        if (byId.size() < PARALLEL_SCAN_THRESHOLD || parallelism == 1) {
+            found = scanPart(query, 0, positions);
+        } else {
+            int partSize = Math.max(MIN_SCAN_PART, positions / (parallelism * 4));
+            List<ForkJoinTask<List<MusicBand>>> parts = new ArrayList<>();
+            for (int from = 0; from < positions; from += partSize) {
+                int start = from;
+                int end = Math.min(positions, from + partSize);
+                parts.add(scanPool.submit(() -> scanPart(query, start, end)));
+            }
+            found = new ArrayList<>();
+            for (ForkJoinTask<List<MusicBand>> part : parts) {
+                found.addAll(part.join());
+            }
+        }
+        found.sort(query.order());
+        return found.size() > query.getLimit() ? new ArrayList<>(found.subList(0, query.getLimit())) : found;
+    }
+
+    private List<MusicBand> scanPart(BandQuery query, int from, int to) {
+        List<MusicBand> found = new ArrayList<>();
+        byId.forEach(from, to, musicBand -> {
+            if (query.test(musicBand)) {
+                found.add(musicBand);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Checks the bands in the cells of the spatial grid overlapped by the rectangle of the query.
+     * Must be called under a lock.
+     */
+    private List<MusicBand> inside(BandQuery query) {
+        List<MusicBand> found = new ArrayList<>();
+        byCoordinates.forEachInside(query.getMinX(), query.getMaxX(), query.getMinY(), query.getMaxY(), id -> {
+            MusicBand musicBand = byId.get(id);
+            if (query.test(musicBand)) {
+                found.add(musicBand);
+            }
+        });
+        found.sort(query.order());
+        return found.size() > query.getLimit() ? new ArrayList<>(found.subList(0, query.getLimit())) : found;
+    }
+
+    /**
+     * Looks up the bands of the IDs taken from an index. Must be called under a lock.
+     */
+    private List<MusicBand> resolve(long[] ids) {
+        List<MusicBand> musicBands = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            musicBands.add(byId.get(id));
+        }
+        return musicBands;
+    }
+
+    /**
+     * Stores a band under its ID and updates the indexes. Must be called under the write lock.
+     */
+    private void put(MusicBand musicBand) {
+        musicBand.setLabel(labels.intern(musicBand.getLabel()));
+        MusicBand replaced = byId.put(musicBand);
+        if (replaced != null) {
+            unindex(replaced);
+        }
+        participants.add(musicBand);
+        byCreationDate.add(musicBand);
+        byParticipants.add(musicBand);
+        byCoordinates.add(musicBand);
+    }
+
+    /**
+     * Removes a band that has left the ID map from the indexes. Must be called under the write lock.
+     */
+    private void unindex(MusicBand musicBand) {
+        participants.remove(musicBand);
+        byCreationDate.remove(musicBand);
+        byParticipants.remove(musicBand);
+        byCoordinates.remove(musicBand);
+        labels.release(musicBand.getLabel());
+    }
+
+    private static <T> T locked(Lock lock, Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
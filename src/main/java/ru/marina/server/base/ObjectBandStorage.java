@@ -0,0 +1,69 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicBand;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * The ObjectBandStorage class keeps the band objects it is given in a {@link LongMap} by their ID.
+ * Reading a band costs nothing but the lookup, while every band takes a few objects of the heap.
+ */
+public class ObjectBandStorage implements BandStorage {
+    private final LongMap<MusicBand> byId = new LongMap<>();
+
+    @Override
+    public MusicBand get(long id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public boolean containsKey(long id) {
+        return byId.containsKey(id);
+    }
+
+    @Override
+    public MusicBand put(MusicBand musicBand) {
+        return byId.put(musicBand.getId(), musicBand);
+    }
+
+    @Override
+    public MusicBand remove(long id) {
+        return byId.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        byId.ensureCapacity(expectedSize);
+    }
+
+    @Override
+    public void clear() {
+        byId.clear();
+    }
+
+    @Override
+    public int positions() {
+        return byId.capacity();
+    }
+
+    @Override
+    public void forEach(int from, int to, Consumer<? super MusicBand> action) {
+        byId.forEach(from, to, action);
+    }
+
+    @Override
+    public Iterator<MusicBand> iterator() {
+        return byId.iterator();
+    }
+}
@@ -0,0 +1,229 @@
+package ru.marina.server.base;
+
+import ru.marina.model.Coordinates;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The OffHeapBandStorage class keeps the bands as fixed-size records in direct buffers outside the heap,
+ * so the garbage collector has almost nothing to trace however big the collection is.
+ * The records are numbered by dense slots, like in {@link ColumnarBandStorage}, and are allocated in chunks
+ * of {@link #CHUNK_RECORDS}, so the storage grows without copying. The heap keeps only the {@link SlotTable}
+ * of the IDs and the names too long to fit in a record. The records refer to their labels by their numbers
+ * in the {@link LabelDictionary} of the store, which interns the label of every band before it is stored
+ * and releases it only after the band has left the storage. Every band returned is a new object built from
+ * its record.
+ * <p>
+ * The direct memory is limited by the {@code -XX:MaxDirectMemorySize} option, which defaults to the heap size.
+ * <pre>
+ * record: long id, double x, double y, long creation date, int participants, int albums, int label,
+ *         byte genre (-1 for none), byte name length ({@link #LONG_NAME} if kept on the heap), 2 bytes of padding,
+ *         UTF-8 name of up to {@link #NAME_BYTES} bytes
+ * </pre>
+ */
+public class OffHeapBandStorage implements BandStorage {
+    public static final int RECORD_SIZE = 96;
+    public static final int CHUNK_RECORDS = 1 << 14;
+    static final int NAME_BYTES = 48;
+    static final int LONG_NAME = 0xFF;
+
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_RECORDS);
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final SlotTable slots = new SlotTable(slot -> chunk(slot).getLong(offset(slot)));
+    private final LongMap<String> longNames = new LongMap<>();
+    private final LabelDictionary labels;
+    private int size;
+
+    /**
+     * Constructs an empty OffHeapBandStorage.
+     *
+     * @param labels the dictionary the labels of the stored bands are interned in
+     */
+    public OffHeapBandStorage(LabelDictionary labels) {
+        this.labels = labels;
+    }
+
+    @Override
+    public MusicBand get(long id) {
+        int slot = slots.find(id);
+        return slot >= 0 ? view(slot) : null;
+    }
+
+    @Override
+    public boolean containsKey(long id) {
+        return slots.find(id) >= 0;
+    }
+
+    @Override
+    public MusicBand put(MusicBand musicBand) {
+        long id = musicBand.getId();
+        int slot = slots.find(id);
+        if (slot >= 0) {
+            MusicBand replaced = view(slot);
+            release(slot);
+            store(slot, musicBand);
+            return replaced;
+        }
+        ensureCapacity(size + 1);
+        store(size, musicBand);
+        slots.insert(id, size++);
+        return null;
+    }
+
+    @Override
+    public MusicBand remove(long id) {
+        int slot = slots.find(id);
+        if (slot < 0) {
+            return null;
+        }
+        MusicBand removed = view(slot);
+        slots.remove(id);
+        release(slot);
+
+        int last = size - 1;
+        if (slot != last) {
+            ByteBuffer from = chunk(last);
+            slots.move(from.getLong(offset(last)), slot);
+            chunk(slot).put(offset(slot), from, offset(last), RECORD_SIZE);
+        }
+        size--;
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        while ((long) chunks.size() * CHUNK_RECORDS < expectedSize) {
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder()));
+        }
+        slots.ensureCapacity(expectedSize);
+    }
+
+    /**
+     * Removes all bands and gives up the chunks, whose memory is freed once they are collected.
+     */
+    @Override
+    public void clear() {
+        chunks.clear();
+        slots.clear();
+        longNames.clear();
+        size = 0;
+    }
+
+    @Override
+    public int positions() {
+        return size;
+    }
+
+    @Override
+    public void forEach(int from, int to, Consumer<? super MusicBand> action) {
+        for (int slot = from; slot < to; slot++) {
+            action.accept(view(slot));
+        }
+    }
+
+    @Override
+    public Iterator<MusicBand> iterator() {
+        return new Iterator<>() {
+            private int slot;
+
+            @Override
+            public boolean hasNext() {
+                return slot < size;
+            }
+
+            @Override
+            public MusicBand next() {
+                if (slot >= size) {
+                    throw new NoSuchElementException();
+                }
+                return view(slot++);
+            }
+        };
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks.get(slot >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & CHUNK_MASK) * RECORD_SIZE;
+    }
+
+    private void store(int slot, MusicBand musicBand) {
+        ByteBuffer chunk = chunk(slot);
+        int at = offset(slot);
+        byte[] name = musicBand.getName().getBytes(StandardCharsets.UTF_8);
+        chunk.putLong(at, musicBand.getId())
+             .putDouble(at + 8, musicBand.getCoordinates().getX())
+             .putDouble(at + 16, musicBand.getCoordinates().getY())
+             .putLong(at + 24, musicBand.getCreationDate().getTime())
+             .putInt(at + 32, musicBand.getNumberOfParticipants())
+             .putInt(at + 36, musicBand.getAlbumsCount())
+             .putInt(at + 40, labels.numberOf(musicBand.getLabel()))
+             .put(at + 44, musicBand.getMusicGenre() == null ? -1 : (byte) musicBand.getMusicGenre().ordinal());
+        if (name.length <= NAME_BYTES) {
+            chunk.put(at + 45, (byte) name.length).put(at + 48, name);
+        } else {
+            chunk.put(at + 45, (byte) LONG_NAME);
+            longNames.put(musicBand.getId(), musicBand.getName());
+        }
+    }
+
+    private MusicBand view(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int at = offset(slot);
+        long id = chunk.getLong(at);
+        int nameLength = chunk.get(at + 45) & 0xFF;
+        String name;
+        if (nameLength == LONG_NAME) {
+            name = longNames.get(id);
+        } else {
+            byte[] bytes = new byte[nameLength];
+            chunk.get(at + 48, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        byte genre = chunk.get(at + 44);
+        return new MusicBand(id,
+                name,
+                new Coordinates(chunk.getDouble(at + 8), chunk.getDouble(at + 16)),
+                new Date(chunk.getLong(at + 24)),
+                chunk.getInt(at + 32),
+                chunk.getInt(at + 36),
+                genre < 0 ? null : GENRES[genre],
+                labels.label(chunk.getInt(at + 40)));
+    }
+
+    /**
+     * Drops the heap references of the record in a slot before it is overwritten or freed.
+     */
+    private void release(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int at = offset(slot);
+        if ((chunk.get(at + 45) & 0xFF) == LONG_NAME) {
+            longNames.remove(chunk.getLong(at));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+/**
+ * The ParticipantAggregates class keeps running aggregates of the numbers of participants of a collection.
+ * Every band added or removed updates the count, the sum, and the count and sum of its genre,
+ * so a summary never has to look at the bands. The smallest and the biggest value are read from the ends
+ * of the sorted index of the numbers of participants, which the store keeps up to date as well.
+ * The class is not thread-safe.
+ */
+public class ParticipantAggregates {
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+
+    private final SortedIndex byParticipants;
+    private final long[] genreCounts = new long[GENRES.length + 1];
+    private final long[] genreSums = new long[GENRES.length + 1];
+    private long count;
+    private long sum;
+
+    /**
+     * Constructs empty aggregates.
+     *
+     * @param byParticipants the index of the bands sorted by their number of participants
+     */
+    public ParticipantAggregates(SortedIndex byParticipants) {
+        this.byParticipants = byParticipants;
+    }
+
+    public void add(MusicBand musicBand) {
+        int participants = musicBand.getNumberOfParticipants();
+        int slot = slot(musicBand.getMusicGenre());
+        count++;
+        sum += participants;
+        genreCounts[slot]++;
+        genreSums[slot] += participants;
+    }
+
+    public void remove(MusicBand musicBand) {
+        int participants = musicBand.getNumberOfParticipants();
+        int slot = slot(musicBand.getMusicGenre());
+        count--;
+        sum -= participants;
+        genreCounts[slot]--;
+        genreSums[slot] -= participants;
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0;
+        Arrays.fill(genreCounts, 0);
+        Arrays.fill(genreSums, 0);
+    }
+
+    public OptionalInt min() {
+        return toInt(byParticipants.firstKey());
+    }
+
+    public OptionalInt max() {
+        return toInt(byParticipants.lastKey());
+    }
+
+    /**
+     * Returns a summary of the current values.
+     *
+     * @return the summary, which does not change with the aggregates
+     */
+    public ParticipantStatistics statistics() {
+        return new ParticipantStatistics(count, sum, min(), max(), genreCounts.clone(), genreSums.clone());
+    }
+
+    private static OptionalInt toInt(OptionalLong value) {
+        return value.isPresent() ? OptionalInt.of((int) value.getAsLong()) : OptionalInt.empty();
+    }
+
+    /**
+     * Returns the index of the genre in the per-genre arrays; the bands without a genre take the last one.
+     */
+    static int slot(MusicGenre genre) {
+        return genre == null ? GENRES.length : genre.ordinal();
+    }
+}
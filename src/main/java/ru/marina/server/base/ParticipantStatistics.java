@@ -0,0 +1,85 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicGenre;
+
+import java.util.OptionalInt;
+
+/**
+ * The ParticipantStatistics class is a point-in-time summary of the numbers of participants of the collection:
+ * their count, sum, smallest and biggest value, and the count and sum for every genre.
+ * Bands without a genre are counted under the null genre.
+ */
+public final class ParticipantStatistics {
+    private final long count;
+    private final long sum;
+    private final OptionalInt min;
+    private final OptionalInt max;
+    private final long[] genreCounts;
+    private final long[] genreSums;
+
+    ParticipantStatistics(long count, long sum, OptionalInt min, OptionalInt max,
+                          long[] genreCounts, long[] genreSums) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.genreCounts = genreCounts;
+        this.genreSums = genreSums;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the average number of participants.
+     *
+     * @return the average, or 0 if the collection is empty
+     */
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public OptionalInt getMin() {
+        return min;
+    }
+
+    public OptionalInt getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the number of bands of the genre.
+     *
+     * @param genre the genre, or null for the bands without a genre
+     * @return the number of bands
+     */
+    public long getCount(MusicGenre genre) {
+        return genreCounts[ParticipantAggregates.slot(genre)];
+    }
+
+    /**
+     * Returns the sum of the numbers of participants of the bands of the genre.
+     *
+     * @param genre the genre, or null for the bands without a genre
+     * @return the sum of the numbers of participants
+     */
+    public long getSum(MusicGenre genre) {
+        return genreSums[ParticipantAggregates.slot(genre)];
+    }
+
+    /**
+     * Returns the average number of participants of the bands of the genre.
+     *
+     * @param genre the genre, or null for the bands without a genre
+     * @return the average, or 0 if there are no bands of the genre
+     */
+    public double getAverage(MusicGenre genre) {
+        long genreCount = getCount(genre);
+        return genreCount == 0 ? 0 : (double) getSum(genre) / genreCount;
+    }
+}
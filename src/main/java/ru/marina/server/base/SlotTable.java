@@ -0,0 +1,163 @@
+package ru.marina.server.base;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * The SlotTable class finds the slot of a band by its ID for the storages that keep the bands in numbered slots.
+ * It is an open-addressing table of slot numbers: the IDs are not stored in the table but read from the slots,
+ * so a cell costs a single int. The class is not thread-safe.
+ */
+class SlotTable {
+    private static final int MIN_CAPACITY = 16;
+    private static final double MAX_LOAD = 0.6;
+
+    private final IntToLongFunction idOfSlot;
+    // slot + 1 of the band whose ID hashes near the cell, 0 for an empty cell
+    private int[] cells;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Constructs an empty SlotTable.
+     *
+     * @param idOfSlot the function giving the ID of the band in a slot
+     */
+    SlotTable(IntToLongFunction idOfSlot) {
+        this.idOfSlot = idOfSlot;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Returns the slot of an ID.
+     *
+     * @param id the ID
+     * @return the slot, or -1 if the ID is not in the table
+     */
+    int find(long id) {
+        int cell = findCell(id);
+        return cell >= 0 ? cells[cell] - 1 : -1;
+    }
+
+    /**
+     * Adds an ID that is not in the table. The ID must already be readable from its slot.
+     *
+     * @param id   the ID
+     * @param slot the slot of the ID
+     */
+    void insert(long id, int slot) {
+        if (size + 1 > resizeThreshold) {
+            rehash(cells.length * 2);
+        }
+        cells[-findCell(id) - 1] = slot + 1;
+        size++;
+    }
+
+    /**
+     * Points an ID in the table to another slot.
+     *
+     * @param id   the ID
+     * @param slot the new slot of the ID
+     */
+    void move(long id, int slot) {
+        cells[findCell(id)] = slot + 1;
+    }
+
+    /**
+     * Removes an ID from the table. Its slot must still hold it.
+     *
+     * @param id the ID
+     */
+    void remove(long id) {
+        int cell = findCell(id);
+        if (cell < 0) {
+            return;
+        }
+        int mask = cells.length - 1;
+        int gap = cell;
+        int next = (gap + 1) & mask;
+        while (cells[next] != 0) {
+            int home = cellOf(idOfSlot.applyAsLong(cells[next] - 1));
+            boolean canMove = next > gap
+                    ? home <= gap || home > next
+                    : home <= gap && home > next;
+            if (canMove) {
+                cells[gap] = cells[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        cells[gap] = 0;
+        size--;
+    }
+
+    /**
+     * Makes room for the given number of IDs.
+     *
+     * @param expectedSize the number of IDs the table is expected to hold
+     */
+    void ensureCapacity(int expectedSize) {
+        if (expectedSize > resizeThreshold) {
+            int capacity = cells.length;
+            while (capacity * MAX_LOAD < expectedSize) {
+                capacity <<= 1;
+            }
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Removes all IDs. A table that has grown shrinks back to its smallest capacity.
+     */
+    void clear() {
+        if (cells.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(cells, 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * Finds the cell of an ID.
+     *
+     * @return the cell, or -(free cell) - 1 where the ID would be inserted
+     */
+    private int findCell(long id) {
+        int mask = cells.length - 1;
+        int cell = cellOf(id);
+        while (cells[cell] != 0) {
+            if (idOfSlot.applyAsLong(cells[cell] - 1) == id) {
+                return cell;
+            }
+            cell = (cell + 1) & mask;
+        }
+        return -cell - 1;
+    }
+
+    private int cellOf(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void rehash(int capacity) {
+        int[] old = cells;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int value : old) {
+            if (value != 0) {
+                int cell = cellOf(idOfSlot.applyAsLong(value - 1));
+                while (cells[cell] != 0) {
+                    cell = (cell + 1) & mask;
+                }
+                cells[cell] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        cells = new int[capacity];
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = (int) (capacity * MAX_LOAD);
+    }
+}
@@ -0,0 +1,229 @@
+package ru.marina.server.base;
+
+import ru.marina.base.BinarySnapshot;
+import ru.marina.base.Serializer;
+import ru.marina.model.MusicBand;
+
+import javax.naming.NoPermissionException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The SnapshotManager class keeps the collection file and its journal in step.
+ * The journal is split into numbered segments next to the collection file.
+ * A snapshot takes a point-in-time copy of the collection and starts a new segment in one short step
+ * under the write lock of the store, then writes the copy in the background and, once the file has been
+ * replaced, deletes the segments it covers. Requests keep running while the file is being written.
+ * <p>
+ * If a snapshot fails, its segments stay on disk and are replayed on top of the previous file at the next start.
+ * No snapshot is written once a journal has failed to write a change, since the store may already hold it
+ * in memory, see {@link MusicBandStore#isFailed()}.
+ * A collection file with the {@link BinarySnapshot#EXTENSION} extension is written in the binary format, any other as CSV.
+ */
+public class SnapshotManager implements Closeable {
+    private static final String JOURNAL_SUFFIX = ".wal.";
+    private static final int SHUTDOWN_TIMEOUT = 60;
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+    private final MusicBandStore store;
+    private final Path collectionFile;
+    private final ExecutorService snapshotThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long segment;
+    private volatile Snapshot lastSnapshot;
+    private volatile int snapshotCount;
+
+    /**
+     * The Snapshot class describes a finished snapshot.
+     */
+    public static final class Snapshot {
+        private final int musicBands;
+        private final long bytes;
+        private final long millis;
+
+        private Snapshot(int musicBands, long bytes, long millis) {
+            this.musicBands = musicBands;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public int getMusicBands() {
+            return musicBands;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return musicBands + " item(s), " + bytes + " bytes in " + millis + " ms";
+        }
+    }
+
+    /**
+     * Constructs a SnapshotManager for the collection file.
+     *
+     * @param store          the store holding the collection
+     * @param collectionFile the file the collection is saved to
+     */
+    public SnapshotManager(MusicBandStore store, Path collectionFile) {
+        this.store = store;
+        this.collectionFile = collectionFile.toAbsolutePath();
+    }
+
+    /**
+     * Replays the journal segments left after the last snapshot and starts a new segment for the following changes.
+     * The store must already hold the collection loaded from the file.
+     *
+     * @return the number of replayed records
+     * @throws IOException if a segment cannot be read or the new one cannot be created
+     */
+    public synchronized int recover() throws IOException {
+        int replayed = 0;
+        for (long number : segments()) {
+            Path path = segmentPath(number);
+            replayed += Journal.replay(path, store);
+            segment = Math.max(segment, number);
+            if (Files.size(path) == 0) {
+                Files.delete(path);
+            }
+        }
+        store.setJournal(Journal.open(segmentPath(++segment)));
+        return replayed;
+    }
+
+    /**
+     * Starts a snapshot of the collection. The copy of the collection is taken when the snapshot starts
+     * running; snapshots run one at a time in the order they were requested.
+     *
+     * @return the future completed with the description of the snapshot, or with the error that stopped it
+     */
+    public CompletableFuture<Snapshot> snapshot() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return writeSnapshot();
+            } catch (IOException | NoPermissionException e) {
+                throw new CompletionException(e);
+            }
+        }, snapshotThread);
+    }
+
+    /**
+     * Returns the last finished snapshot.
+     *
+     * @return the last snapshot, or null if no snapshot has been made yet
+     */
+    public Snapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Waits for the started snapshots and closes the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotThread.shutdown();
+        try {
+            if (!snapshotThread.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                logger.warning("A snapshot was still running when the journal was closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Journal journal = store.getJournal();
+        store.setJournal(null);
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private Snapshot writeSnapshot() throws IOException, NoPermissionException {
+        long start = System.nanoTime();
+        long covered;
+        Journal previous;
+        List<MusicBand> copy;
+        synchronized (this) {
+            covered = segment;
+            Journal next = Journal.open(segmentPath(covered + 1));
+            previous = store.getJournal();
+            try {
+                copy = store.switchJournal(next);
+            } catch (UncheckedIOException e) {
+                next.close();
+                Files.deleteIfExists(next.getPath());
+                throw new IOException("The collection is not saved: " + e.getMessage(), e.getCause());
+            }
+            segment = covered + 1;
+        }
+        if (previous != null) {
+            previous.close();
+            IOException lost = previous.getFailure();
+            if (lost != null) {
+                // the copy may hold changes whose records were lost with the last batch
+                store.fail(lost);
+                throw new IOException("The collection is not saved, the journal failed to write a change", lost);
+            }
+        }
+
+        long bytes = BinarySnapshot.isBinary(collectionFile)
+                ? BinarySnapshot.write(copy, collectionFile)
+                : Serializer.serialize(copy, collectionFile.toString());
+        for (long number : segments()) {
+            if (number <= covered) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+
+        Snapshot snapshot = new Snapshot(copy.size(), bytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastSnapshot = snapshot;
+        snapshotCount++;
+        logger.info("Snapshot of " + collectionFile.getFileName() + ": " + snapshot);
+        return snapshot;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        String prefix = collectionFile.getFileName() + JOURNAL_SUFFIX;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(collectionFile.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                try {
+                    numbers.add(Long.parseLong(file.getFileName().toString().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // not a journal segment
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return collectionFile.resolveSibling(collectionFile.getFileName() + JOURNAL_SUFFIX + number);
+    }
+}
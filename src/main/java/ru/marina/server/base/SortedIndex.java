@@ -0,0 +1,430 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicBand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * The SortedIndex class keeps music bands sorted by a numeric key and then by their ID,
+ * so every band has a distinct place in the order. A head of the order, such as the bands created before
+ * a given moment, is found without looking at any other band, and the order can be read page by page,
+ * either from an offset or after the position of a known band. Only the keys and the IDs are kept,
+ * not the bands, so the index does not hold on to the band objects of the store. The class is not thread-safe.
+ * <p>
+ * The pairs of keys and IDs are kept in sorted blocks of primitive arrays of up to {@link #BLOCK_SIZE} pairs.
+ * A full block is split in two, and a block that falls below a quarter of that size is merged with,
+ * or takes pairs from, a neighbour, so every block stays at least a quarter full however many bands are removed.
+ * A pair is found by a binary search over the first pairs of the blocks and then inside its block, so adding
+ * and removing a band takes logarithmic time plus a shift inside one block; splitting or merging a block
+ * also shifts the list of blocks, which takes time linear in the number of blocks but happens at most once
+ * per quarter of a block of changes. The sizes of the blocks are summed in a Fenwick tree, so the number of bands
+ * before a position, and hence {@link #count(long, long)}, takes logarithmic time as well.
+ * The index is a few objects per block rather than per band, which keeps the work of the garbage collector
+ * independent of the size of the collection.
+ */
+public class SortedIndex {
+    static final int BLOCK_SIZE = 512;
+    private static final int MIN_BLOCK_SIZE = BLOCK_SIZE / 4;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final ToLongFunction<MusicBand> key;
+    /**
+     * The Fenwick tree of the sizes of the blocks, indexed from one.
+     */
+    private int[] counts = new int[1];
+    private int size;
+
+    /**
+     * Constructs an empty SortedIndex.
+     *
+     * @param key the function giving the key a band is sorted by; it must not change while the band is indexed
+     */
+    public SortedIndex(ToLongFunction<MusicBand> key) {
+        this.key = key;
+    }
+
+    public void add(MusicBand musicBand) {
+        long value = key.applyAsLong(musicBand);
+        long id = musicBand.getId();
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+            rebuildCounts();
+        }
+        int index = blockOf(value, id);
+        Block block = blocks.get(index);
+        int position = block.search(value, id);
+        if (position >= 0) {
+            return;
+        }
+        if (block.size == BLOCK_SIZE) {
+            Block upper = block.split();
+            blocks.add(index + 1, upper);
+            rebuildCounts();
+            if (compare(value, id, upper.values[0], upper.ids[0]) > 0) {
+                block = upper;
+                index++;
+            }
+            position = block.search(value, id);
+        }
+        block.insert(-position - 1, value, id);
+        addCount(index, 1);
+        size++;
+    }
+
+    public void remove(MusicBand musicBand) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        long value = key.applyAsLong(musicBand);
+        long id = musicBand.getId();
+        int index = blockOf(value, id);
+        Block block = blocks.get(index);
+        int position = block.search(value, id);
+        if (position < 0) {
+            return;
+        }
+        block.delete(position);
+        addCount(index, -1);
+        size--;
+        if (block.size == 0) {
+            blocks.remove(index);
+            rebuildCounts();
+        } else if (block.size < MIN_BLOCK_SIZE && blocks.size() > 1) {
+            rebalance(index == blocks.size() - 1 ? index - 1 : index);
+        }
+    }
+
+    public void clear() {
+        blocks.clear();
+        counts = new int[1];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the bands whose key is in a range. Whole blocks are counted at once.
+     *
+     * @param from the smallest key, inclusive
+     * @param to   the biggest key, inclusive
+     * @return the number of bands
+     */
+    public int count(long from, long to) {
+        if (from > to) {
+            return 0;
+        }
+        int below = rank(from, Long.MIN_VALUE);
+        return to == Long.MAX_VALUE ? size - below : rank(to + 1, Long.MIN_VALUE) - below;
+    }
+
+    /**
+     * Passes the bands whose key is in a range to the action in order, until the action returns false.
+     *
+     * @param from   the smallest key, inclusive
+     * @param to     the biggest key, inclusive
+     * @param action the action taking the ID of every band and telling whether to go on
+     */
+    public void forEachBetween(long from, long to, LongPredicate action) {
+        if (blocks.isEmpty() || from > to) {
+            return;
+        }
+        int index = blockOf(from, Long.MIN_VALUE);
+        int position = -blocks.get(index).search(from, Long.MIN_VALUE) - 1;
+        for (; index < blocks.size(); index++, position = 0) {
+            Block block = blocks.get(index);
+            for (int i = position; i < block.size; i++) {
+                if (block.values[i] > to || !action.test(block.ids[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the bands whose key is strictly less than the value, in order.
+     *
+     * @param value the key of the first band not to return
+     * @return the IDs of the bands
+     */
+    public long[] headBefore(long value) {
+        IdList ids = new IdList(Integer.MAX_VALUE);
+        for (Block block : blocks) {
+            for (int i = 0; i < block.size; i++) {
+                if (block.values[i] >= value) {
+                    return ids.toArray();
+                }
+                ids.add(block.ids[i]);
+            }
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * Returns the first band of the order.
+     *
+     * @return the ID of the band with the smallest key, or an empty optional if the index is empty
+     */
+    public OptionalLong first() {
+        return blocks.isEmpty() ? OptionalLong.empty() : OptionalLong.of(blocks.get(0).ids[0]);
+    }
+
+    /**
+     * Returns the smallest key.
+     *
+     * @return the key of the first band, or an empty optional if the index is empty
+     */
+    public OptionalLong firstKey() {
+        return blocks.isEmpty() ? OptionalLong.empty() : OptionalLong.of(blocks.get(0).values[0]);
+    }
+
+    /**
+     * Returns the biggest key.
+     *
+     * @return the key of the last band, or an empty optional if the index is empty
+     */
+    public OptionalLong lastKey() {
+        if (blocks.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        Block last = blocks.get(blocks.size() - 1);
+        return OptionalLong.of(last.values[last.size - 1]);
+    }
+
+    /**
+     * Returns a page of the order starting at an offset. Whole blocks are skipped at once, so skipping takes
+     * time proportional to the offset divided by the block size.
+     *
+     * @param offset the number of bands to skip
+     * @param limit  the largest number of bands to return
+     * @return the IDs of the bands
+     */
+    public long[] page(int offset, int limit) {
+        int index = 0;
+        while (index < blocks.size() && offset >= blocks.get(index).size) {
+            offset -= blocks.get(index++).size;
+        }
+        return collect(index, offset, limit);
+    }
+
+    /**
+     * Returns a page of the order starting right after a position, found in logarithmic time.
+     * The position does not have to belong to a band that is still indexed.
+     *
+     * @param value the key of the position
+     * @param id    the ID of the position
+     * @param limit the largest number of bands to return
+     * @return the IDs of the bands
+     */
+    public long[] pageAfter(long value, long id, int limit) {
+        if (blocks.isEmpty()) {
+            return new long[0];
+        }
+        int index = blockOf(value, id);
+        int position = blocks.get(index).search(value, id);
+        return collect(index, position >= 0 ? position + 1 : -position - 1, limit);
+    }
+
+    private long[] collect(int index, int position, int limit) {
+        IdList ids = new IdList(limit);
+        for (; index < blocks.size() && ids.size < limit; index++, position = 0) {
+            Block block = blocks.get(index);
+            for (int i = position; i < block.size && ids.size < limit; i++) {
+                ids.add(block.ids[i]);
+            }
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * Counts the pairs less than the given one.
+     */
+    private int rank(long value, long id) {
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+        int index = blockOf(value, id);
+        int position = blocks.get(index).search(value, id);
+        return countBefore(index) + (position >= 0 ? position : -position - 1);
+    }
+
+    /**
+     * Evens out a block and the one after it: merges them if their pairs fit in one block,
+     * and otherwise moves pairs from the bigger one so both are half full.
+     */
+    private void rebalance(int index) {
+        Block left = blocks.get(index);
+        Block right = blocks.get(index + 1);
+        int total = left.size + right.size;
+        if (total <= BLOCK_SIZE) {
+            left.append(right, right.size);
+            blocks.remove(index + 1);
+        } else if (left.size < total / 2) {
+            left.append(right, total / 2 - left.size);
+        } else {
+            right.prepend(left, left.size - total / 2);
+        }
+        rebuildCounts();
+    }
+
+    /**
+     * Counts the pairs of the blocks before the given one.
+     */
+    private int countBefore(int index) {
+        int count = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            count += counts[i];
+        }
+        return count;
+    }
+
+    private void addCount(int index, int delta) {
+        for (int i = index + 1; i < counts.length; i += i & -i) {
+            counts[i] += delta;
+        }
+    }
+
+    /**
+     * Builds the Fenwick tree again after blocks were added or removed, in time linear in their number.
+     */
+    private void rebuildCounts() {
+        counts = new int[blocks.size() + 1];
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += blocks.get(i - 1).size;
+            int parent = i + (i & -i);
+            if (parent < counts.length) {
+                counts[parent] += counts[i];
+            }
+        }
+    }
+
+    /**
+     * Finds the block a pair belongs to: the last block whose first pair is not greater than it,
+     * or the first block if there is none. The index must not be empty.
+     */
+    private int blockOf(long value, long id) {
+        int low = 1;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Block block = blocks.get(middle);
+            if (compare(block.values[0], block.ids[0], value, id) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    private static int compare(long value, long id, long otherValue, long otherId) {
+        int byValue = Long.compare(value, otherValue);
+        return byValue != 0 ? byValue : Long.compare(id, otherId);
+    }
+
+    private static final class Block {
+        private final long[] values = new long[BLOCK_SIZE];
+        private final long[] ids = new long[BLOCK_SIZE];
+        private int size;
+
+        /**
+         * Finds a pair in the block.
+         *
+         * @return the position of the pair, or -(insertion position) - 1 if the block does not hold it
+         */
+        private int search(long value, long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compare(values[middle], ids[middle], value, id);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        private void insert(int position, long value, long id) {
+            System.arraycopy(values, position, values, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            values[position] = value;
+            ids[position] = id;
+            size++;
+        }
+
+        private void delete(int position) {
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        /**
+         * Moves the first pairs of the next block to the end of this one.
+         */
+        private void append(Block next, int count) {
+            System.arraycopy(next.values, 0, values, size, count);
+            System.arraycopy(next.ids, 0, ids, size, count);
+            size += count;
+            System.arraycopy(next.values, count, next.values, 0, next.size - count);
+            System.arraycopy(next.ids, count, next.ids, 0, next.size - count);
+            next.size -= count;
+        }
+
+        /**
+         * Moves the last pairs of the previous block to the start of this one.
+         */
+        private void prepend(Block previous, int count) {
+            System.arraycopy(values, 0, values, count, size);
+            System.arraycopy(ids, 0, ids, count, size);
+            System.arraycopy(previous.values, previous.size - count, values, 0, count);
+            System.arraycopy(previous.ids, previous.size - count, ids, 0, count);
+            size += count;
+            previous.size -= count;
+        }
+
+        /**
+         * Moves the upper half of the block to a new block.
+         */
+        private Block split() {
+            Block upper = new Block();
+            int half = size / 2;
+            upper.size = size - half;
+            System.arraycopy(values, half, upper.values, 0, upper.size);
+            System.arraycopy(ids, half, upper.ids, 0, upper.size);
+            size = half;
+            return upper;
+        }
+    }
+
+    private static final class IdList {
+        private final int limit;
+        private long[] ids = new long[16];
+        private int size;
+
+        private IdList(int limit) {
+            this.limit = limit;
+        }
+
+        private void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, (int) Math.min(limit, ids.length * 2L));
+            }
+            ids[size++] = id;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package ru.marina.server.base;
+
+import ru.marina.model.MusicBand;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * The SpatialGrid class indexes the bands by their coordinates in a fixed grid of square cells
+ * over the square from {@link #MIN} to {@link #MAX} on both axes. The coordinates are not bounded from below,
+ * so a band outside the square is put in the nearest border cell; its exact coordinates are kept,
+ * and only the border cells grow for such bands. Every cell keeps the IDs and the coordinates of its bands
+ * in primitive arrays, so queries are answered without looking at the bands themselves.
+ * <p>
+ * A rectangle is answered from the cells it overlaps, and the nearest bands to a point are searched
+ * in rings of cells around the point's cell until no unvisited cell can hold a nearer band.
+ * The class is not thread-safe.
+ */
+public class SpatialGrid {
+    public static final double MIN = -314;
+    public static final double MAX = 314;
+    static final int CELLS = 128;
+    private static final double CELL_SIZE = (MAX - MIN) / CELLS;
+
+    private final Cell[] cells = new Cell[CELLS * CELLS];
+
+    public void add(MusicBand musicBand) {
+        double x = musicBand.getCoordinates().getX();
+        double y = musicBand.getCoordinates().getY();
+        int index = column(x) * CELLS + column(y);
+        if (cells[index] == null) {
+            cells[index] = new Cell();
+        }
+        cells[index].add(musicBand.getId(), x, y);
+    }
+
+    public void remove(MusicBand musicBand) {
+        Cell cell = cells[column(musicBand.getCoordinates().getX()) * CELLS + column(musicBand.getCoordinates().getY())];
+        if (cell != null) {
+            cell.remove(musicBand.getId());
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(cells, null);
+    }
+
+    /**
+     * Counts the bands of the cells a rectangle overlaps, which is an upper bound of the bands inside it.
+     *
+     * @param minX the smallest x, inclusive
+     * @param maxX the biggest x, inclusive
+     * @param minY the smallest y, inclusive
+     * @param maxY the biggest y, inclusive
+     * @return the number of bands in the overlapped cells
+     */
+    public int countCandidates(double minX, double maxX, double minY, double maxY) {
+        if (!(minX <= maxX && minY <= maxY)) {
+            return 0;
+        }
+        int count = 0;
+        for (int column = column(minX); column <= column(maxX); column++) {
+            for (int row = column(minY); row <= column(maxY); row++) {
+                Cell cell = cells[column * CELLS + row];
+                count += cell == null ? 0 : cell.size;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes the IDs of the bands inside a rectangle to the action.
+     *
+     * @param minX   the smallest x, inclusive
+     * @param maxX   the biggest x, inclusive
+     * @param minY   the smallest y, inclusive
+     * @param maxY   the biggest y, inclusive
+     * @param action the action taking the ID of every band
+     */
+    public void forEachInside(double minX, double maxX, double minY, double maxY, LongConsumer action) {
+        if (!(minX <= maxX && minY <= maxY)) {
+            return;
+        }
+        for (int column = column(minX); column <= column(maxX); column++) {
+            for (int row = column(minY); row <= column(maxY); row++) {
+                Cell cell = cells[column * CELLS + row];
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    if (cell.xs[i] >= minX && cell.xs[i] <= maxX && cell.ys[i] >= minY && cell.ys[i] <= maxY) {
+                        action.accept(cell.ids[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the bands nearest to a point. Bands at the same distance are ordered by their ID.
+     * Bands with a coordinate that is not a number are never found.
+     *
+     * @param x the x of the point
+     * @param y the y of the point
+     * @param k the largest number of bands to return
+     * @return the IDs of the bands, nearest first
+     */
+    public long[] nearest(double x, double y, int k) {
+        Nearest nearest = new Nearest(x, y, k);
+        if (k <= 0) {
+            return nearest.ids();
+        }
+        int centerColumn = column(x);
+        int centerRow = column(y);
+        for (int ring = 0; ring < CELLS; ring++) {
+            // a cell of this ring is separated from the point by at least ring - 1 whole cells
+            if (nearest.isFull() && nearest.worstDistance() < (ring - 1) * CELL_SIZE) {
+                break;
+            }
+            for (int column = centerColumn - ring; column <= centerColumn + ring; column++) {
+                if (column < 0 || column >= CELLS) {
+                    continue;
+                }
+                boolean edge = column == centerColumn - ring || column == centerColumn + ring;
+                int step = edge || ring == 0 ? 1 : 2 * ring;
+                for (int row = centerRow - ring; row <= centerRow + ring; row += step) {
+                    if (row >= 0 && row < CELLS && cells[column * CELLS + row] != null) {
+                        nearest.offer(cells[column * CELLS + row]);
+                    }
+                }
+            }
+        }
+        return nearest.ids();
+    }
+
+    /**
+     * Returns the column, or the row, of the cells a coordinate falls in. Coordinates outside the square
+     * fall in the border cells; a coordinate that is not a number falls in the first cell.
+     */
+    private static int column(double coordinate) {
+        if (!(coordinate > MIN)) {
+            return 0;
+        }
+        return (int) Math.min(CELLS - 1, (coordinate - MIN) / CELL_SIZE);
+    }
+
+    private static final class Cell {
+        private long[] ids = new long[4];
+        private double[] xs = new double[4];
+        private double[] ys = new double[4];
+        private int size;
+
+        private void add(long id, double x, double y) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            ids[size] = id;
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        private void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    xs[i] = xs[size];
+                    ys[i] = ys[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The nearest bands found so far, kept in a heap of squared distances whose head is the farthest of them.
+     * The heap grows as bands are found, so a count far bigger than the grid does not take memory.
+     */
+    private static final class Nearest {
+        private final double x;
+        private final double y;
+        private final int k;
+        private long[] ids;
+        private double[] distances;
+        private int size;
+
+        private Nearest(double x, double y, int k) {
+            this.x = x;
+            this.y = y;
+            this.k = Math.max(k, 0);
+            this.ids = new long[Math.min(this.k, 16)];
+            this.distances = new double[ids.length];
+        }
+
+        private boolean isFull() {
+            return size == k;
+        }
+
+        private double worstDistance() {
+            return Math.sqrt(distances[0]);
+        }
+
+        private void offer(Cell cell) {
+            for (int i = 0; i < cell.size; i++) {
+                double dx = cell.xs[i] - x;
+                double dy = cell.ys[i] - y;
+                double distance = dx * dx + dy * dy;
+                if (Double.isNaN(distance)) {
+                    continue;
+                }
+                if (size < k) {
+                    if (size == ids.length) {
+                        int capacity = (int) Math.min(k, 2L * size);
+                        ids = Arrays.copyOf(ids, capacity);
+                        distances = Arrays.copyOf(distances, capacity);
+                    }
+                    ids[size] = cell.ids[i];
+                    distances[size] = distance;
+                    siftUp(size++);
+                } else if (isCloser(distance, cell.ids[i], 0)) {
+                    ids[0] = cell.ids[i];
+                    distances[0] = distance;
+                    siftDown(0);
+                }
+            }
+        }
+
+        /**
+         * Returns the IDs nearest first, emptying the heap.
+         */
+        private long[] ids() {
+            long[] result = new long[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        /**
+         * Checks whether a candidate is nearer than the entry at a place of the heap.
+         */
+        private boolean isCloser(double distance, long id, int place) {
+            return distance < distances[place] || distance == distances[place] && id < ids[place];
+        }
+
+        private void siftUp(int place) {
+            while (place > 0) {
+                int parent = (place - 1) / 2;
+                if (!isCloser(distances[parent], ids[parent], place)) {
+                    return;
+                }
+                swap(place, parent);
+                place = parent;
+            }
+        }
+
+        private void siftDown(int place) {
+            while (true) {
+                int farthest = place;
+                for (int child = 2 * place + 1; child <= 2 * place + 2 && child < size; child++) {
+                    if (isCloser(distances[farthest], ids[farthest], child)) {
+                        farthest = child;
+                    }
+                }
+                if (farthest == place) {
+                    return;
+                }
+                swap(place, farthest);
+                place = farthest;
+            }
+        }
+
+        private void swap(int first, int second) {
+            long id = ids[first];
+            ids[first] = ids[second];
+            ids[second] = id;
+            double distance = distances[first];
+            distances[first] = distances[second];
+            distances[second] = distance;
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
+import ru.marina.exceptions.NotEnoughArgsException;
 import ru.marina.server.base.CLIController;
-import ru.marina.client.InputManager;
 import ru.marina.model.*;
 
 import java.io.Serializable;
-import java.util.Scanner;
 
 /**
  * The Add class represents a command that adds an element to the collection.
@@ -27,22 +26,12 @@ public class Add implements Command, Serializable {
     /**
      * Executes the add command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    a boolean indicating if the command is executed from the execute method
-     * @param executeScanner the scanner used for executing the command
+     * @param context the context of the request
+     * @throws NotEnoughArgsException if the request has no music band
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        Scanner scanner;
-        MusicBand musicBand;
-        if (fromExecute) {
-            scanner = executeScanner;
-            InputManager inManager = new InputManager(scanner);
-            musicBand = new MusicBand();
-            inManager.describeMusicBand(musicBand);
-        } else {
-            musicBand = controller.getExtraMusicBand();
-        }
+    public Response execute(CommandContext context) throws NotEnoughArgsException {
+        MusicBand musicBand = context.readMusicBand();
 
         controller.addMusicBand(musicBand);
         return new Response(Status.OK,"Element added successfully");
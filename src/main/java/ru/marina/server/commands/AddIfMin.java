@@ -1,15 +1,14 @@
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
+import ru.marina.exceptions.NotEnoughArgsException;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.client.InputManager;
+import ru.marina.server.base.MusicBandStore;
 import ru.marina.model.MusicBand;
 
 import java.io.Serializable;
-import java.util.Comparator;
-import java.util.Optional;
-import java.util.Scanner;
+import java.util.OptionalInt;
 
 /**
  * Represents a command that adds an element to the collection if it is smaller than the smallest element of the sorted array.
@@ -39,32 +38,24 @@ public class AddIfMin implements Command, Serializable {
     /**
      * Executes the command with the specified arguments.
      *
-     * @param args           the command arguments
-     * @param fromExecute    true if the command is executed from the execute method, false otherwise
-     * @param executeScanner the scanner to use for input if the command is executed from the execute method
+     * @param context the context of the request
+     * @throws NotEnoughArgsException if the request has no music band
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        Scanner scanner;
-        MusicBand musicBand;
-        if (fromExecute) {
-            scanner = executeScanner;
-            InputManager inManager = new InputManager(scanner);
-            musicBand = new MusicBand();
-            inManager.describeMusicBand(musicBand);
-        } else {
-            musicBand = controller.getExtraMusicBand();
-        }
-
-        Optional<MusicBand> maxBand = controller.getMusicBands()
-                .stream()
-                .min(Comparator.comparingInt(MusicBand::getNumberOfParticipants));
+    public Response execute(CommandContext context) throws NotEnoughArgsException {
+        MusicBand musicBand = context.readMusicBand();
 
-        boolean addable = maxBand.map(
-                band -> musicBand.getNumberOfParticipants() < band.getNumberOfParticipants()
-        ).orElse(true);
-        if (addable) {
-            controller.addMusicBand(musicBand);
+        MusicBandStore collection = controller.getMusicBands();
+        boolean added = collection.write(() -> {
+            OptionalInt minParticipants = collection.minParticipants();
+            boolean addable = minParticipants.isEmpty()
+                    || musicBand.getNumberOfParticipants() < minParticipants.getAsInt();
+            if (addable) {
+                collection.add(musicBand);
+            }
+            return addable;
+        });
+        if (added) {
             return new Response(Status.OK, "Object was added to the collection");
         } else {
             return new Response(Status.OK, "Object was not added to the collection. It is not the minimum");
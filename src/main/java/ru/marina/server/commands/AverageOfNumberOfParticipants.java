@@ -1,20 +1,22 @@
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
+import ru.marina.base.Scalar;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.server.base.ParticipantStatistics;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a command that calculates and displays the average number of participants in all music bands.
  */
 public class AverageOfNumberOfParticipants implements Command, Serializable {
 
-    private final HashSet<MusicBand> collection;
+    private final CLIController controller;
 
     /**
      * Constructs a new AverageOfNumberOfParticipants command with the specified CLIController.
@@ -22,24 +24,32 @@ public class AverageOfNumberOfParticipants implements Command, Serializable {
      * @param controller the CLIController instance
      */
     public AverageOfNumberOfParticipants(CLIController controller) {
-        this.collection = controller.getMusicBands();
+        this.controller = controller;
     }
 
     /**
      * Executes the AverageOfNumberOfParticipants command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    true if the command is executed from the execute method, false otherwise
-     * @param executeScanner the Scanner instance for reading user input during execution
+     * @param context the context of the request
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        double average = collection.stream()
-                                   .mapToInt(MusicBand::getNumberOfParticipants)
-                                   .average()
-                                   .orElse(0);
+    public Response execute(CommandContext context) {
+        ParticipantStatistics statistics = controller.getMusicBands().participantStatistics();
 
-        return new Response(Status.OK,"The average of the number of participants in all bands is " + average);
+        List<Scalar> values = new ArrayList<>();
+        values.add(Scalar.of("all bands", statistics.getAverage()));
+        for (MusicGenre genre : MusicGenre.values()) {
+            if (statistics.getCount(genre) > 0) {
+                values.add(Scalar.of(genre.toString(), statistics.getAverage(genre)));
+            }
+        }
+        if (statistics.getCount(null) > 0) {
+            values.add(Scalar.of("without genre", statistics.getAverage(null)));
+        }
+
+        Response response = new Response(Status.OK, "The average of the number of participants:");
+        response.setScalars(values);
+        return response;
     }
 
     /**
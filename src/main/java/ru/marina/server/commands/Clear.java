@@ -3,11 +3,8 @@ package ru.marina.server.commands;
 import ru.marina.base.Response;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.model.MusicBand;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Scanner;
 
 /**
  * The Clear class represents a command that clears the collection of MusicBands.
@@ -15,30 +12,27 @@ import java.util.Scanner;
  */
 public class Clear implements Command, Serializable {
 
-    private final HashSet<MusicBand> collection;
+    private final CLIController controller;
 
     /**
      * Constructs a Clear object with the specified CLIController.
      * @param controller the CLIController object
      */
     public Clear(CLIController controller) {
-        this.collection = controller.getMusicBands();
+        this.controller = controller;
     }
 
     /**
      * Executes the Clear command.
      * If the collection is already empty, it prints a message and returns.
      * Otherwise, it clears the collection and prints a message.
-     * @param args the command arguments
-     * @param fromExecute a boolean indicating if the command is executed from the execute method
-     * @param executeScanner the Scanner object used for input during execution
+     * @param context the context of the request
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        if (collection.isEmpty()) {
+    public Response execute(CommandContext context) {
+        if (controller.getMusicBands().clear() == 0) {
             return new Response(Status.OK, "The collection is already empty.");
         }
-        collection.clear();
         return new Response(Status.OK,"The collection has been cleared.");
     }
 
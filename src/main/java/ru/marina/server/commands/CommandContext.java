@@ -0,0 +1,145 @@
+package ru.marina.server.commands;
+
+import ru.marina.base.Response;
+import ru.marina.client.InputManager;
+import ru.marina.exceptions.NotEnoughArgsException;
+import ru.marina.model.MusicBand;
+
+import java.util.Scanner;
+import java.util.function.Consumer;
+
+/**
+ * The CommandContext class holds everything a single command execution needs:
+ * the command arguments, the music band sent with the request and who asked for it.
+ * A new context is made for every request and it never changes, so commands keep no
+ * per-request state and can be run by several threads at the same time.
+ * <p>
+ * When the request came over the network, a command with a long answer can send it in parts:
+ * every part passed to {@link #stream(Response)} is sent to the client at once, before the final response.
+ */
+public final class CommandContext {
+    private final String[] args;
+    private final MusicBand musicBand;
+    private final Scanner scriptScanner;
+    private final String caller;
+    private final Consumer<Response> stream;
+
+    /**
+     * Constructs a context for a command that needs nothing but its arguments.
+     *
+     * @param args   the command and its arguments
+     * @param caller the description of who asked for the command
+     */
+    public CommandContext(String[] args, String caller) {
+        this(args, (MusicBand) null, caller);
+    }
+
+    /**
+     * Constructs a context for a request received from a client.
+     *
+     * @param args      the command and its arguments
+     * @param musicBand the music band sent with the request, may be null
+     * @param caller    the description of who sent the request
+     */
+    public CommandContext(String[] args, MusicBand musicBand, String caller) {
+        this(args, musicBand, caller, null);
+    }
+
+    /**
+     * Constructs a context for a request received from a client that accepts its response in parts.
+     *
+     * @param args      the command and its arguments
+     * @param musicBand the music band sent with the request, may be null
+     * @param caller    the description of who sent the request
+     * @param stream    the consumer sending the parts of the response to the client
+     */
+    public CommandContext(String[] args, MusicBand musicBand, String caller, Consumer<Response> stream) {
+        this.args = args.clone();
+        this.musicBand = musicBand;
+        this.scriptScanner = null;
+        this.caller = caller;
+        this.stream = stream;
+    }
+
+    /**
+     * Constructs a context for a command read from a script.
+     *
+     * @param args          the command and its arguments
+     * @param scriptScanner the scanner of the script, used to read music bands
+     * @param caller        the description of who started the script
+     */
+    public CommandContext(String[] args, Scanner scriptScanner, String caller) {
+        this.args = args.clone();
+        this.musicBand = null;
+        this.scriptScanner = scriptScanner;
+        this.caller = caller;
+        this.stream = null;
+    }
+
+    /**
+     * Returns a copy of the command and its arguments.
+     *
+     * @return the command and its arguments
+     */
+    public String[] getArgs() {
+        return args.clone();
+    }
+
+    public MusicBand getMusicBand() {
+        return musicBand;
+    }
+
+    public Scanner getScriptScanner() {
+        return scriptScanner;
+    }
+
+    public boolean isFromScript() {
+        return scriptScanner != null;
+    }
+
+    public String getCaller() {
+        return caller;
+    }
+
+    /**
+     * Checks whether the response can be sent in parts.
+     *
+     * @return true if {@link #stream(Response)} can be called
+     */
+    public boolean canStream() {
+        return stream != null;
+    }
+
+    /**
+     * Sends a part of the response to the client right away. May wait until the client
+     * has received the earlier parts, so that a slow client does not make the server buffer the whole answer.
+     *
+     * @param part the part of the response
+     * @throws IllegalStateException if the response cannot be sent in parts
+     */
+    public void stream(Response part) {
+        if (stream == null) {
+            throw new IllegalStateException("The response cannot be sent in parts");
+        }
+        stream.accept(part);
+    }
+
+    /**
+     * Returns the music band the command works with: the one sent with the request,
+     * or a new one read from the script when the command runs from a script.
+     *
+     * @return the music band
+     * @throws NotEnoughArgsException if the request has no music band
+     */
+    public MusicBand readMusicBand() throws NotEnoughArgsException {
+        if (scriptScanner != null) {
+            MusicBand scriptBand = new MusicBand();
+            new InputManager(scriptScanner).describeMusicBand(scriptBand);
+            return scriptBand;
+        }
+        if (musicBand == null) {
+            throw new NotEnoughArgsException("Music band is required");
+        }
+        return musicBand;
+    }
+}
@@ -27,7 +27,8 @@ import java.util.Scanner;
  */
 public class ExecuteScript implements Command, Serializable {
     private final CommandExecutor commandExecutor;
-    private static final ArrayList<Integer> recursionHistory = new ArrayList<>();
+    // every thread runs its own chain of nested scripts
+    private static final ThreadLocal<ArrayList<Integer>> recursionHistory = ThreadLocal.withInitial(ArrayList::new);
 
 
     public ExecuteScript(CommandExecutor commandExecutor) {
@@ -35,17 +36,16 @@ public class ExecuteScript implements Command, Serializable {
     }
 
     @Override
-    public Response execute(String[] args,
-                            boolean fromExecute,
-                            Scanner executeScanner) throws WrongArgsException,
-                                                       NotEnoughArgsException,
-                                                       IOException
+    public Response execute(CommandContext context) throws WrongArgsException,
+                                                           NotEnoughArgsException,
+                                                           IOException
     {
+        String[] args = context.getArgs();
         if (args.length < 2) {
             throw new NotEnoughArgsException("Command requires \"path\" argument");
         }
         Path path = Paths.get(args[1]);
-        recursionHistory.add(args[1].hashCode());
+        recursionHistory.get().add(args[1].hashCode());
         String scriptFileName = args[1];
 
         try {
@@ -70,15 +70,15 @@ public class ExecuteScript implements Command, Serializable {
 
         try (Scanner scanner = new Scanner(new FileInputStream(scriptFileName))) {
             System.out.println("Running " + path);
-            runThrough(scanner);
-            recursionHistory.clear();
+            runThrough(scanner, context.getCaller());
+            recursionHistory.get().clear();
         } catch (IOException e) {
             throw new IOException("Failed to deserialize the priority queue from file: " + scriptFileName, e);
         }
         return new Response(Status.OK, "Script has been executed.");
     }
 
-    private void runThrough(Scanner scanner) throws IOException {
+    private void runThrough(Scanner scanner, String caller) throws IOException {
         while (scanner.hasNextLine()) {
             String currLine = scanner.nextLine();
             if (currLine == null) {
@@ -97,13 +97,13 @@ public class ExecuteScript implements Command, Serializable {
 
             try {
                 if (command.getClass() == ExecuteScript.class) {
-                    if (ExecuteScript.recursionHistory.contains(args[1].hashCode())) {
+                    if (ExecuteScript.recursionHistory.get().contains(args[1].hashCode())) {
                         System.out.println("Recursion! Command skipped!");
                         return;
                     }
-                    ExecuteScript.recursionHistory.add(args[0].hashCode());
+                    ExecuteScript.recursionHistory.get().add(args[0].hashCode());
                 }
-                command.execute(args, true, scanner);
+                command.execute(new CommandContext(args, scanner, caller));
 
 
             } catch (NotEnoughArgsException |  NoPermissionException | WrongArgsException | IOException e) {
@@ -6,7 +6,6 @@ import ru.marina.model.Status;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Scanner;
 
 /**
  * The Exit class represents a command that allows the user to exit the program without saving the changes to the file.
@@ -15,17 +14,13 @@ public class Exit implements Command, Serializable {
     /**
      * Executes the exit command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    indicates whether the command is executed from the main execute method
-     * @param executeScanner the scanner used for user input during execution
+     * @param context the context of the request
      * @throws IOException    if an I/O error occurs
      * @throws ExitException  if the exit command is thrown to terminate the program
      */
     @Override
-    public Response execute(String[] args,
-                            boolean fromExecute,
-                            Scanner executeScanner) throws IOException,
-                                                       ExitException
+    public Response execute(CommandContext context) throws IOException,
+                                                           ExitException
     {
         return new Response(Status.OK, "Shutting the application...");
     }
@@ -0,0 +1,164 @@
+package ru.marina.server.commands;
+
+import ru.marina.base.Response;
+import ru.marina.base.Scalar;
+import ru.marina.exceptions.WrongArgsException;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.model.Status;
+import ru.marina.server.base.BandField;
+import ru.marina.server.base.BandQuery;
+import ru.marina.server.base.CLIController;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The Filter class is a command that finds the collection items meeting the given conditions on the server,
+ * so only the matching items are sent to the client.
+ * <p>
+ * Every argument is a {@code key=value} pair. A range is written as {@code min..max}, where either bound
+ * may be left out, and a single value stands for itself. The conditions are:
+ * {@code name=<prefix>}, {@code genre=<genre or none>}, {@code participants=<range>}, {@code label=<name>},
+ * {@code x=<range>}, {@code y=<range>} and {@code created=<range of yyyy-MM-dd dates>}.
+ * The result is shaped by {@code order=<field>[:desc]}, {@code limit=<count>} and {@code fields=<field,...>},
+ * which sends only the listed fields of every item as a record of named values. The fields are id, name, x, y, created, participants,
+ * albums, genre and label.
+ */
+public class Filter implements Command, Serializable {
+    private final CLIController controller;
+
+    /**
+     * Constructs a Filter object with the specified CLIController.
+     *
+     * @param controller the CLIController object
+     */
+    public Filter(CLIController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Executes the Filter command.
+     *
+     * @param context the context of the request
+     * @throws WrongArgsException if an argument is not a known condition or its value is invalid
+     */
+    @Override
+    public Response execute(CommandContext context) throws WrongArgsException {
+        String[] args = context.getArgs();
+        BandQuery query = new BandQuery();
+        List<BandField> fields = null;
+        for (int i = 1; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals <= 0) {
+                throw new WrongArgsException("Arguments must look like key=value: " + args[i]);
+            }
+            String key = args[i].substring(0, equals);
+            String value = args[i].substring(equals + 1);
+            try {
+                switch (key) {
+                    case "name" -> query.setNamePrefix(value);
+                    case "genre" -> query.setGenre(value.equalsIgnoreCase("none")
+                            ? null
+                            : MusicGenre.valueOf(value.toUpperCase(Locale.ROOT)));
+                    case "participants" -> {
+                        String[] range = range(value);
+                        query.setParticipants(range[0].isEmpty() ? Long.MIN_VALUE : Integer.parseInt(range[0]),
+                                range[1].isEmpty() ? Long.MAX_VALUE : Integer.parseInt(range[1]));
+                    }
+                    case "label" -> query.setLabelName(value);
+                    case "x" -> {
+                        String[] range = range(value);
+                        query.setX(parseDouble(range[0], Double.NEGATIVE_INFINITY),
+                                parseDouble(range[1], Double.POSITIVE_INFINITY));
+                    }
+                    case "y" -> {
+                        String[] range = range(value);
+                        query.setY(parseDouble(range[0], Double.NEGATIVE_INFINITY),
+                                parseDouble(range[1], Double.POSITIVE_INFINITY));
+                    }
+                    case "created" -> {
+                        String[] range = range(value);
+                        ZoneId zone = ZoneId.systemDefault();
+                        query.setCreated(range[0].isEmpty()
+                                        ? Long.MIN_VALUE
+                                        : LocalDate.parse(range[0]).atStartOfDay(zone).toInstant().toEpochMilli(),
+                                range[1].isEmpty()
+                                        ? Long.MAX_VALUE
+                                        : LocalDate.parse(range[1]).plusDays(1).atStartOfDay(zone).toInstant()
+                                                   .toEpochMilli() - 1);
+                    }
+                    case "order" -> {
+                        boolean descending = value.endsWith(":desc");
+                        query.setOrder(BandField.of(descending ? value.substring(0, value.length() - 5) : value),
+                                descending);
+                    }
+                    case "limit" -> {
+                        int limit = Integer.parseInt(value);
+                        if (limit < 1) {
+                            throw new WrongArgsException("Limit must be positive");
+                        }
+                        query.setLimit(limit);
+                    }
+                    case "fields" -> {
+                        fields = new ArrayList<>();
+                        for (String field : value.split(",")) {
+                            fields.add(BandField.of(field));
+                        }
+                    }
+                    default -> throw new WrongArgsException("Unknown condition: " + key);
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new WrongArgsException("Invalid value of " + key + ": " + value);
+            }
+        }
+
+        BandQuery.Result result = controller.getMusicBands().query(query);
+        List<MusicBand> found = result.getMusicBands();
+        String summary = found.size() + " item(s) found, " + result.getPlan();
+        Response response = new Response(Status.OK, summary);
+        if (fields == null) {
+            response.setMusicBands(found);
+            return response;
+        }
+        List<List<Scalar>> records = new ArrayList<>(found.size());
+        for (MusicBand musicBand : found) {
+            List<Scalar> record = new ArrayList<>(fields.size());
+            for (BandField field : fields) {
+                record.add(field.scalar(musicBand));
+            }
+            records.add(record);
+        }
+        response.setRecords(records);
+        return response;
+    }
+
+    /**
+     * Splits a range into its lower and upper bound, either of which may be empty.
+     */
+    private static String[] range(String value) {
+        int dots = value.indexOf("..");
+        return dots < 0 ? new String[]{value, value} : new String[]{value.substring(0, dots), value.substring(dots + 2)};
+    }
+
+    private static double parseDouble(String value, double absent) {
+        return value.isEmpty() ? absent : Nearest.parseCoordinate(value);
+    }
+
+    /**
+     * Gets the description of the Filter command.
+     *
+     * @return the description of the command
+     */
+    @Override
+    public String getDescription() {
+        return "Finds items by conditions: filter [name=prefix] [genre=G] [participants=min..max] [label=name] "
+                + "[x=min..max] [y=min..max] [created=yyyy-MM-dd..yyyy-MM-dd] [order=field[:desc]] [limit=n] "
+                + "[fields=f1,f2]";
+    }
+}
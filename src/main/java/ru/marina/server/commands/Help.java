@@ -16,12 +16,10 @@ public class Help implements Command, Serializable {
     /**
      * Executes the Help command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    indicates whether the command is executed from the main execute method
-     * @param executeScanner the scanner used for user input during command execution
+     * @param context the context of the request
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
+    public Response execute(CommandContext context) {
         StringBuilder result = new StringBuilder();
         result.append(String.format("%-35s   %-90s%n", "COMMAND", "DESCRIPTION"));
         result.append("--------------------------------------------------------------------------\n");
@@ -0,0 +1,75 @@
+package ru.marina.server.commands;
+
+import ru.marina.base.Response;
+import ru.marina.exceptions.NotEnoughArgsException;
+import ru.marina.exceptions.WrongArgsException;
+import ru.marina.model.Status;
+import ru.marina.server.base.BandQuery;
+import ru.marina.server.base.CLIController;
+
+import java.io.Serializable;
+
+/**
+ * The InRectangle class is a command that finds the collection items whose coordinates lie inside a rectangle,
+ * borders included. The items are listed by their ID, up to the given limit.
+ */
+public class InRectangle implements Command, Serializable {
+    private final CLIController controller;
+
+    /**
+     * Constructs an InRectangle object with the specified CLIController.
+     *
+     * @param controller the CLIController object
+     */
+    public InRectangle(CLIController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Executes the InRectangle command.
+     *
+     * @param context the context of the request
+     * @throws NotEnoughArgsException if a corner of the rectangle is missing
+     * @throws WrongArgsException     if a coordinate is not a number or the limit is not positive
+     */
+    @Override
+    public Response execute(CommandContext context) throws NotEnoughArgsException, WrongArgsException {
+        String[] args = context.getArgs();
+        if (args.length < 5) {
+            throw new NotEnoughArgsException("Corners of the rectangle are required: minX minY maxX maxY");
+        }
+        BandQuery query = new BandQuery();
+        try {
+            double minX = Nearest.parseCoordinate(args[1]);
+            double minY = Nearest.parseCoordinate(args[2]);
+            double maxX = Nearest.parseCoordinate(args[3]);
+            double maxY = Nearest.parseCoordinate(args[4]);
+            query.setX(Math.min(minX, maxX), Math.max(minX, maxX));
+            query.setY(Math.min(minY, maxY), Math.max(minY, maxY));
+            if (args.length > 5) {
+                query.setLimit(Integer.parseInt(args[5]));
+            }
+        } catch (NumberFormatException e) {
+            throw new WrongArgsException("Coordinates must be numbers and the limit an Integer");
+        }
+        if (query.getLimit() < 1) {
+            throw new WrongArgsException("Limit must be positive");
+        }
+
+        BandQuery.Result result = controller.getMusicBands().query(query);
+        Response response = new Response(Status.OK,
+                result.getMusicBands().size() + " item(s) found, " + result.getPlan());
+        response.setMusicBands(result.getMusicBands());
+        return response;
+    }
+
+    /**
+     * Gets the description of the InRectangle command.
+     *
+     * @return the description of the command
+     */
+    @Override
+    public String getDescription() {
+        return "Finds items inside a rectangle: in_rectangle minX minY maxX maxY [limit]";
+    }
+}
@@ -1,13 +1,15 @@
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
+import ru.marina.base.Scalar;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.model.MusicBand;
+import ru.marina.server.base.MusicBandStore;
+import ru.marina.server.base.SnapshotManager;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Info class represents a command that shows information about a collection.
@@ -26,21 +28,27 @@ public class Info implements Command, Serializable {
 
     /**
      * Executes the Info command with the given arguments.
-     * @param args the command arguments
-     * @param fromExecute a boolean indicating if the command is executed from the execute method
-     * @param executeScanner the Scanner object used for input during execution
+     * @param context the context of the request
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        HashSet<MusicBand> musicBands = controller.getMusicBands();
-
-        String result = "";
-        result += "\tInformation about collection:" + System.lineSeparator();
-        result += "Created at " + controller.getCreationDate() + System.lineSeparator();
-        result += "Collection type is " + musicBands.getClass().getSimpleName() + System.lineSeparator();
-        result += "Amount of items stored in - " + musicBands.size();
-
-        return new Response(Status.OK, result);
+    public Response execute(CommandContext context) {
+        MusicBandStore musicBands = controller.getMusicBands();
+
+        List<Scalar> info = new ArrayList<>();
+        if (controller.getCreationDate() != null) {
+            info.add(Scalar.of("Created at", controller.getCreationDate()));
+        }
+        info.add(Scalar.of("Collection type", musicBands.getClass().getSimpleName()));
+        info.add(Scalar.of("Amount of items", musicBands.size()));
+        SnapshotManager snapshots = controller.getSnapshots();
+        if (snapshots != null && snapshots.getLastSnapshot() != null) {
+            info.add(Scalar.of("Last saved", snapshots.getLastSnapshot().toString()));
+            info.add(Scalar.of("Saved since start", snapshots.getSnapshotCount()));
+        }
+
+        Response response = new Response(Status.OK, "\tInformation about collection:");
+        response.setScalars(info);
+        return response;
     }
 
     /**
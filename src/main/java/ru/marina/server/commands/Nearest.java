@@ -0,0 +1,90 @@
+package ru.marina.server.commands;
+
+import ru.marina.base.Response;
+import ru.marina.exceptions.NotEnoughArgsException;
+import ru.marina.exceptions.WrongArgsException;
+import ru.marina.model.MusicBand;
+import ru.marina.model.Status;
+import ru.marina.server.base.CLIController;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The Nearest class is a command that finds the collection items whose coordinates are nearest to a point,
+ * nearest first.
+ */
+public class Nearest implements Command, Serializable {
+    public static final int DEFAULT_COUNT = 10;
+
+    private final CLIController controller;
+
+    /**
+     * Constructs a Nearest object with the specified CLIController.
+     *
+     * @param controller the CLIController object
+     */
+    public Nearest(CLIController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Executes the Nearest command.
+     *
+     * @param context the context of the request
+     * @throws NotEnoughArgsException if a coordinate of the point is missing
+     * @throws WrongArgsException     if a coordinate is not a number or the count is not positive
+     */
+    @Override
+    public Response execute(CommandContext context) throws NotEnoughArgsException, WrongArgsException {
+        String[] args = context.getArgs();
+        if (args.length < 3) {
+            throw new NotEnoughArgsException("Coordinates of the point are required: x y");
+        }
+        double x;
+        double y;
+        int count = DEFAULT_COUNT;
+        try {
+            x = parseCoordinate(args[1]);
+            y = parseCoordinate(args[2]);
+            if (args.length > 3) {
+                count = Integer.parseInt(args[3]);
+            }
+        } catch (NumberFormatException e) {
+            throw new WrongArgsException("Coordinates must be numbers and the count an Integer");
+        }
+        if (count < 1) {
+            throw new WrongArgsException("Count must be positive");
+        }
+
+        List<MusicBand> found = controller.getMusicBands().nearest(x, y, count);
+        Response response = new Response(Status.OK, found.size() + " nearest item(s) to (" + x + ", " + y + ")");
+        response.setMusicBands(found);
+        return response;
+    }
+
+    /**
+     * Parses a coordinate given as an argument.
+     *
+     * @param value the argument
+     * @return the coordinate
+     * @throws NumberFormatException if the argument is not a finite number
+     */
+    static double parseCoordinate(String value) {
+        double coordinate = Double.parseDouble(value);
+        if (!Double.isFinite(coordinate)) {
+            throw new NumberFormatException("Not a finite number: " + value);
+        }
+        return coordinate;
+    }
+
+    /**
+     * Gets the description of the Nearest command.
+     *
+     * @return the description of the command
+     */
+    @Override
+    public String getDescription() {
+        return "Finds items nearest to a point: nearest x y [count, " + DEFAULT_COUNT + " by default]";
+    }
+}
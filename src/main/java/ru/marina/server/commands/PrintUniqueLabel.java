@@ -3,13 +3,11 @@ package ru.marina.server.commands;
 import ru.marina.base.Response;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.model.MusicBand;
+import ru.marina.server.base.MusicBandStore;
 
 import javax.naming.NoPermissionException;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Scanner;
 
 /**
  * The PrintUniqueLabel class is a command that prints the unique values of the house field
@@ -30,30 +28,19 @@ public class PrintUniqueLabel implements Command, Serializable {
     /**
      * Executes the PrintUniqueLabel command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    a boolean indicating whether the command is executed from the execute method
-     * @param executeScanner the Scanner object used for user input during execution
+     * @param context the context of the request
      * @throws NoPermissionException if the user does not have permission to execute the command
      * @throws IOException           if an I/O error occurs
      */
     @Override
-    public Response execute(String[] args,
-                            boolean fromExecute,
-                            Scanner executeScanner) throws NoPermissionException,
-                                                       IOException
+    public Response execute(CommandContext context) throws NoPermissionException,
+                                                           IOException
     {
-        StringBuilder sb = new StringBuilder();
-        HashSet<MusicBand> musicBands = controller.getMusicBands();
-        HashSet<String> uniqueHouses = new HashSet<>();
-        for (MusicBand musicBand : musicBands) {
-            uniqueHouses.add(musicBand.getLabel().toString());
-        }
+        MusicBandStore musicBands = controller.getMusicBands();
 
-        sb.append("Unique label values:").append(System.lineSeparator());
-        for (String house : uniqueHouses) {
-            sb.append(house).append(System.lineSeparator());
-        }
-        return new Response(Status.OK, sb.toString());
+        Response response = new Response(Status.OK, "Unique label values:");
+        response.setLabels(musicBands.distinctLabels());
+        return response;
     }
 
     /**
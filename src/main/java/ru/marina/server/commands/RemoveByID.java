@@ -11,7 +11,6 @@ import ru.marina.exceptions.NotEnoughArgsException;
 import ru.marina.exceptions.WrongArgsException;
 
 import java.io.Serializable;
-import java.util.Scanner;
 
 /**
  * The RemoveByID class is a command implementation that removes an element from the CLIController
@@ -32,18 +31,15 @@ public class RemoveByID implements Command, Serializable {
     /**
      * Executes the remove by ID command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    a flag indicating if the command is executed from the execute method
-     * @param executeScanner the scanner object used for input during execution
+     * @param context the context of the request
      * @throws NotEnoughArgsException if the ID argument is missing
      * @throws WrongArgsException    if the ID argument is not a valid UUID
      */
     @Override
-    public Response execute(String[] args,
-                            boolean fromExecute,
-                            Scanner executeScanner) throws NotEnoughArgsException,
-                                                       WrongArgsException
+    public Response execute(CommandContext context) throws NotEnoughArgsException,
+                                                           WrongArgsException
     {
+        String[] args = context.getArgs();
         if (args.length < 2) {
             throw new NotEnoughArgsException("ID is required");
         }
@@ -9,7 +9,6 @@ import ru.marina.exceptions.NotEnoughArgsException;
 import ru.marina.exceptions.WrongArgsException;
 
 import java.io.Serializable;
-import java.util.Scanner;
 
 /**
  * The RemoveGreater class implements the Command interface and represents a command
@@ -30,18 +29,15 @@ public class RemoveGreater implements Command, Serializable {
     /**
      * Executes the RemoveGreater command with the given arguments.
      *
-     * @param args           the arguments for the command
-     * @param fromExecute    a boolean indicating whether the command is executed from the execute method
-     * @param executeScanner the Scanner object used for input during execution
+     * @param context the context of the request
      * @throws NotEnoughArgsException if there are not enough arguments provided
      * @throws WrongArgsException     if the arguments provided are invalid
      */
     @Override
-    public Response execute(String[] args,
-                            boolean fromExecute,
-                            Scanner executeScanner) throws NotEnoughArgsException,
-                                                       WrongArgsException
+    public Response execute(CommandContext context) throws NotEnoughArgsException,
+                                                           WrongArgsException
     {
+        String[] args = context.getArgs();
         if (args.length < 2) {
             throw new NotEnoughArgsException("ID is required");
         }
@@ -52,8 +48,9 @@ public class RemoveGreater implements Command, Serializable {
             throw new WrongArgsException("You need to supply an ID, which is an UUID");
         }
 
+        // a band is greater than the ones created before it
         controller.getMusicBands()
-                  .removeIf(flat -> mainMusicBand.compareTo(flat) > 0);
+                  .removeCreatedBefore(mainMusicBand.getCreationDate());
 
         return new Response(Status.OK,"Elements removed successfully.");
     }
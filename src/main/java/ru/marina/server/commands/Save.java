@@ -1,18 +1,15 @@
 /**
- * A command that saves a priority queue of flats to a file using Serializer class.
+ * A command that saves the collection to a file using Serializer class.
  */
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.server.base.FileValidator;
-import ru.marina.base.Serializer;
+import ru.marina.server.base.SnapshotManager;
 
-import javax.naming.NoPermissionException;
-import java.io.IOException;
 import java.io.Serializable;
-import java.util.Scanner;
+import java.util.concurrent.CompletionException;
 
 public class Save implements Command, Serializable {
 
@@ -28,25 +25,20 @@ public class Save implements Command, Serializable {
     }
 
     /**
-     * Executes the Save command by serializing the priority queue of flats to a file.
-     * If there is an error writing to the file, the user will be prompted to enter a new file name.
+     * Executes the Save command by writing a snapshot of the collection to the file.
+     * The snapshot is written in the background from a copy of the collection,
+     * so other requests are not held up while the file is being written.
      *
-     * @param args           the arguments to execute the command with
-     * @param fromExecute    a flag indicating whether the command is executed from the main execute loop
-     * @param executeScanner a Scanner object for reading user input during execution
+     * @param context the context of the request
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        while (true) {
-            try {
-                FileValidator.checkFile(controller.getFileName());
-                Serializer.serialize(controller.getMusicBands(), controller.getFileName());
-                return new Response(Status.OK, "Successfully saved collection to a file!");
-            } catch (NoPermissionException | IOException e) {
-                System.out.println("Error writing to file: " + e.getMessage());
-                System.out.print("Enter a new file name: ");
-                controller.setFileName(controller.getScanner().nextLine());
-            }
+    public Response execute(CommandContext context) {
+        try {
+            SnapshotManager.Snapshot snapshot = controller.saveCollection().join();
+            return new Response(Status.OK, "Successfully saved collection to a file! (" + snapshot + ")");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new Response(Status.REQUEST_ERROR, "Error writing to file: " + cause.getMessage());
         }
     }
 
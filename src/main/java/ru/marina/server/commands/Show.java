@@ -1,19 +1,29 @@
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
+import ru.marina.exceptions.WrongArgsException;
 import ru.marina.model.MusicBand;
 import ru.marina.model.Status;
+import ru.marina.server.base.MusicBandStore;
 import ru.marina.server.base.CLIController;
 
 import java.io.Serializable;
-import java.util.Comparator;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * The Show class is a command implementation that displays all collection items.
+ * The Show class is a command implementation that displays the collection items
+ * sorted by their number of participants.
+ * <p>
+ * Without arguments all items are shown. They are read from the store page by page, and when the client
+ * accepts its response in parts, every page is sent as soon as it is read. A single page is shown with
+ * {@code show <limit>}, {@code show <offset> <limit>} or {@code show after <cursor> [limit]}, where the cursor
+ * is printed under every full page and points right after its last item.
  */
 public class Show implements Command, Serializable {
+    private static final int PAGE_SIZE = 100;
+    private static final int DEFAULT_LIMIT = 50;
+
     private final CLIController controller;
 
     /**
@@ -28,19 +38,97 @@ public class Show implements Command, Serializable {
     /**
      * Executes the Show command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    a boolean indicating if the command is executed from the execute method
-     * @param executeScanner the Scanner object used for input during execution
+     * @param context the context of the request
+     * @throws WrongArgsException if the offset, the limit or the cursor is invalid
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        return new Response(
-                Status.OK,
-                String.valueOf(controller.getMusicBands()
-                                         .stream()
-                                         .sorted(Comparator.comparingInt(MusicBand::getNumberOfParticipants))
-                                         .collect(Collectors.toList()))
-        );
+    public Response execute(CommandContext context) throws WrongArgsException {
+        String[] args = context.getArgs();
+        MusicBandStore musicBands = controller.getMusicBands();
+        if (args.length == 1) {
+            return showAll(context, musicBands);
+        }
+
+        List<MusicBand> page;
+        int limit;
+        if (args[1].equals("after")) {
+            if (args.length < 3) {
+                throw new WrongArgsException("Cursor is required");
+            }
+            String[] cursor = args[2].split(":");
+            int participants;
+            long id;
+            try {
+                if (cursor.length != 2) {
+                    throw new NumberFormatException();
+                }
+                participants = Integer.parseInt(cursor[0]);
+                id = Long.parseLong(cursor[1]);
+            } catch (NumberFormatException e) {
+                throw new WrongArgsException("Cursor must look like <participants>:<id>");
+            }
+            limit = args.length > 3 ? parseNumber(args[3], "Limit", 1) : DEFAULT_LIMIT;
+            page = musicBands.pageByParticipantsAfter(participants, id, limit);
+        } else {
+            int offset = args.length > 2 ? parseNumber(args[1], "Offset", 0) : 0;
+            limit = parseNumber(args[args.length > 2 ? 2 : 1], "Limit", 1);
+            page = musicBands.pageByParticipants(offset, limit);
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(page.size()).append(" item(s) of ").append(musicBands.size());
+        if (page.size() == limit) {
+            result.append(System.lineSeparator())
+                  .append("Next page: show after ").append(cursorOf(page.get(page.size() - 1))).append(' ').append(limit);
+        }
+        return withBands(result.toString(), page);
+    }
+
+    /**
+     * Shows all items, sending every page at once if the client accepts the response in parts.
+     */
+    private Response showAll(CommandContext context, MusicBandStore musicBands) {
+        List<MusicBand> result = new ArrayList<>();
+        int shown = 0;
+        List<MusicBand> page = musicBands.pageByParticipants(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            shown += page.size();
+            if (context.canStream()) {
+                context.stream(withBands(null, page));
+            } else {
+                result.addAll(page);
+            }
+            MusicBand last = page.get(page.size() - 1);
+            page = page.size() < PAGE_SIZE
+                    ? List.of()
+                    : musicBands.pageByParticipantsAfter(last.getNumberOfParticipants(), last.getId(), PAGE_SIZE);
+        }
+        return withBands(shown + " item(s) shown", result);
+    }
+
+    /**
+     * Builds a response with the items, which the client prints before the message.
+     */
+    private static Response withBands(String message, List<MusicBand> page) {
+        Response response = new Response(Status.OK, message);
+        response.setMusicBands(page);
+        return response;
+    }
+
+    private static String cursorOf(MusicBand musicBand) {
+        return musicBand.getNumberOfParticipants() + ":" + musicBand.getId();
+    }
+
+    private static int parseNumber(String arg, String name, int min) throws WrongArgsException {
+        try {
+            int value = Integer.parseInt(arg);
+            if (value >= min) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new WrongArgsException(name + " must be a whole number not less than " + min);
     }
 
     /**
@@ -50,6 +138,6 @@ public class Show implements Command, Serializable {
      */
     @Override
     public String getDescription() {
-        return "Shows all collection items";
+        return "Shows collection items: show [[offset] limit] or show after <cursor> [limit]";
     }
-}
\ No newline at end of file
+}
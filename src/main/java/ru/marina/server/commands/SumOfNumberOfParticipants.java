@@ -1,20 +1,22 @@
 package ru.marina.server.commands;
 
 import ru.marina.base.Response;
+import ru.marina.base.Scalar;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.server.base.ParticipantStatistics;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A command that calculates and displays the sum of the number of participants in all music bands.
  */
 public class SumOfNumberOfParticipants implements Command, Serializable {
 
-    private final HashSet<MusicBand> collection;
+    private final CLIController controller;
 
     /**
      * Constructs a SumOfNumberOfParticipants command with the specified CLIController.
@@ -22,23 +24,32 @@ public class SumOfNumberOfParticipants implements Command, Serializable {
      * @param controller the CLIController object that manages the collection of music bands
      */
     public SumOfNumberOfParticipants(CLIController controller) {
-        this.collection = controller.getMusicBands();
+        this.controller = controller;
     }
 
     /**
      * Executes the SumOfNumberOfParticipants command.
      *
-     * @param args           the command arguments
-     * @param fromExecute    a flag indicating whether the command is executed from the execute method
-     * @param executeScanner the Scanner object used for user input during execution
+     * @param context the context of the request
      */
     @Override
-    public Response execute(String[] args, boolean fromExecute, Scanner executeScanner) {
-        int sum = collection.stream()
-                            .mapToInt(MusicBand::getNumberOfParticipants)
-                            .sum();
+    public Response execute(CommandContext context) {
+        ParticipantStatistics statistics = controller.getMusicBands().participantStatistics();
 
-        return new Response(Status.OK,"The sum of the number of participants in all bands is " + sum);
+        List<Scalar> values = new ArrayList<>();
+        values.add(Scalar.of("all bands", statistics.getSum()));
+        for (MusicGenre genre : MusicGenre.values()) {
+            if (statistics.getCount(genre) > 0) {
+                values.add(Scalar.of(genre.toString(), statistics.getSum(genre)));
+            }
+        }
+        if (statistics.getCount(null) > 0) {
+            values.add(Scalar.of("without genre", statistics.getSum(null)));
+        }
+
+        Response response = new Response(Status.OK, "The sum of the number of participants:");
+        response.setScalars(values);
+        return response;
     }
 
     /**
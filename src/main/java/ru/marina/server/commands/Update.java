@@ -3,13 +3,11 @@ package ru.marina.server.commands;
 import ru.marina.base.Response;
 import ru.marina.model.Status;
 import ru.marina.server.base.CLIController;
-import ru.marina.client.InputManager;
 import ru.marina.model.MusicBand;
 import ru.marina.exceptions.NotEnoughArgsException;
 import ru.marina.exceptions.WrongArgsException;
 
 import java.io.Serializable;
-import java.util.Scanner;
 
 /**
  * The Update class represents a command that updates an element with the specified ID.
@@ -31,18 +29,15 @@ public class Update implements Command, Serializable {
     /**
      * Executes the update command with the given arguments.
      *
-     * @param args           the arguments for the update command
-     * @param fromExecute    a boolean indicating whether the command is executed from the execute method
-     * @param executeScanner the scanner object to be used for input if executed from the execute method
+     * @param context the context of the request
      * @throws WrongArgsException     if the arguments are invalid
      * @throws NotEnoughArgsException if there are not enough arguments
      */
     @Override
-    public Response execute(String[] args,
-                            boolean fromExecute,
-                            Scanner executeScanner) throws WrongArgsException,
-                                                       NotEnoughArgsException
+    public Response execute(CommandContext context) throws WrongArgsException,
+                                                           NotEnoughArgsException
     {
+        String[] args = context.getArgs();
         if (args.length < 2) {
             throw new NotEnoughArgsException("ID is required");
         }
@@ -53,15 +48,8 @@ public class Update implements Command, Serializable {
             throw new WrongArgsException("You need to supply an ID, which is an UUID");
         }
 
-        Scanner scanner;
-        if (fromExecute) {
-            scanner = executeScanner;
-            InputManager inManager = new InputManager(scanner);
-            inManager.describeMusicBand(musicBandById);
-        } else {
-            MusicBand musicBand = controller.getExtraMusicBand();
-            controller.setMusicBandById(Long.parseLong(args[1]), musicBand);
-        }
+        MusicBand musicBand = context.readMusicBand();
+        controller.setMusicBandById(musicBandById.getId(), musicBand);
         return new Response(Status.OK, "Object by ID has been updated");
     }
 
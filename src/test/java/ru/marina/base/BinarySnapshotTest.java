@@ -0,0 +1,140 @@
+package ru.marina.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinarySnapshotTest {
+    private static final int HEADER_SIZE = 32;
+
+    @TempDir
+    Path directory;
+
+    private static String describe(MusicBand band) {
+        return band.getId() + "|" + band.getName() + "|" + band.getCoordinates().getX() + "|"
+                + band.getCoordinates().getY() + "|" + band.getCreationDate().getTime() + "|"
+                + band.getNumberOfParticipants() + "|" + band.getAlbumsCount() + "|" + band.getMusicGenre() + "|"
+                + band.getLabel().getName() + "|" + band.getLabel().getBands() + "|" + band.getLabel().getSales();
+    }
+
+    private static List<String> describe(List<MusicBand> bands) {
+        return bands.stream().map(BinarySnapshotTest::describe).toList();
+    }
+
+    /**
+     * Bands with every optional field both set and left out, shared labels and non-ASCII names.
+     */
+    private static List<MusicBand> bands(int count) {
+        List<MusicBand> bands = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            MusicGenre genre = id % 4 == 0 ? null : MusicGenre.values()[(int) (id % 3)];
+            String labelName = switch ((int) (id % 3)) {
+                case 0 -> null;
+                case 1 -> "shared label";
+                default -> "лейбл " + id;
+            };
+            Long labelBands = id % 5 == 0 ? null : id * 1_000_000_000L;
+            bands.add(new MusicBand(id, "группа " + id, new Coordinates(-id * 0.25, 314 - id % 7),
+                    new Date(1_600_000_000_000L + id * 1001), (int) (id % 9) + 1, (int) (id % 4) + 1,
+                    genre, new Label(labelName, labelBands, id + 0.125)));
+        }
+        return bands;
+    }
+
+    private Path write(List<MusicBand> bands) throws Exception {
+        Path path = directory.resolve("collection" + BinarySnapshot.EXTENSION);
+        long size = BinarySnapshot.write(bands, path);
+        assertEquals(Files.size(path), size);
+        return path;
+    }
+
+    @Test
+    void readGivesBackEveryField() throws Exception {
+        List<MusicBand> bands = bands(1000);
+
+        assertEquals(describe(bands), describe(BinarySnapshot.read(write(bands))));
+    }
+
+    @Test
+    void emptyCollectionIsReadBack() throws Exception {
+        assertEquals(List.of(), BinarySnapshot.read(write(List.of())));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws Exception {
+        Path path = write(bands(20));
+        byte[] bytes = Files.readAllBytes(path);
+        for (int size = 0; size < bytes.length; size++) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            }
+
+            assertThrows(IOException.class, () -> BinarySnapshot.read(path), "cut to " + size + " bytes");
+            Files.write(path, bytes);
+        }
+    }
+
+    @Test
+    void damagedFileIsRejected() throws Exception {
+        Path path = write(bands(20));
+        byte[] bytes = Files.readAllBytes(path);
+
+        assertDamaged(path, bytes, 0, 1);
+        // the record count, so the records no longer end where the string table starts
+        assertDamaged(path, bytes, 12, 1);
+        // the genre of the first record
+        assertDamaged(path, bytes, HEADER_SIZE + 64, 0x7F);
+        // the name index of the first record
+        assertDamaged(path, bytes, HEADER_SIZE + 59, 0x40);
+        // the offset of the second string
+        long stringsOffset = ByteBuffer.wrap(bytes).getLong(24);
+        assertDamaged(path, bytes, (int) stringsOffset + 4, 0x40);
+    }
+
+    private static void assertDamaged(Path path, byte[] bytes, int at, int mask) throws IOException {
+        byte[] damaged = bytes.clone();
+        damaged[at] ^= (byte) mask;
+        Files.write(path, damaged);
+
+        assertThrows(IOException.class, () -> BinarySnapshot.read(path), "byte " + at);
+        Files.write(path, bytes);
+    }
+
+    @Test
+    void failedWriteKeepsTheOldFile() throws Exception {
+        Path path = write(bands(10));
+        byte[] saved = Files.readAllBytes(path);
+        List<MusicBand> changing = new ArrayList<>(bands(10)) {
+            @Override
+            public int size() {
+                // the collection seems to grow while it is being written
+                return 11;
+            }
+        };
+
+        assertThrows(IOException.class, () -> BinarySnapshot.write(changing, path));
+
+        assertArrayEquals(saved, Files.readAllBytes(path));
+        assertEquals(describe(bands(10)), describe(BinarySnapshot.read(path)));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(path), files.toList());
+        }
+    }
+}
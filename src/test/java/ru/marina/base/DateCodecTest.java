@@ -0,0 +1,38 @@
+package ru.marina.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DateCodecTest {
+    @Test
+    void dateToStringSurvivesTheRoundTrip() {
+        Date date = new Date(1_700_000_000_000L);
+
+        assertEquals(date, DateCodec.parse(date.toString()));
+        assertEquals(date, DateCodec.parse(Long.toString(date.getTime())));
+    }
+
+    @Test
+    void unknownZoneIsRejectedEveryTime() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalArgumentException.class, () -> DateCodec.parse("Wed Jan 01 12:00:00 QQQ 2020"));
+        }
+    }
+
+    @Test
+    void moreZonesThanTheCacheHolds() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (String name : ZoneId.getAvailableZoneIds().stream().filter(id -> id.startsWith("Europe/")).toList()) {
+                long expected = LocalDateTime.of(2020, 1, 1, 12, 0).atZone(ZoneId.of(name)).toInstant().toEpochMilli();
+
+                assertEquals(expected, DateCodec.parse("Wed Jan 01 12:00:00 " + name + " 2020").getTime(), name);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.marina.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameReaderTest {
+    /**
+     * A channel that hands out the given bytes at most a chunk at a time.
+     */
+    private static ReadableByteChannel chunked(byte[] bytes, int chunk) {
+        return new ReadableByteChannel() {
+            private int position;
+
+            @Override
+            public int read(ByteBuffer destination) throws IOException {
+                if (position == bytes.length) {
+                    return -1;
+                }
+                int count = Math.min(chunk, Math.min(destination.remaining(), bytes.length - position));
+                destination.put(bytes, position, count);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static byte[] frames(byte[]... bodies) {
+        int size = 0;
+        for (byte[] body : bodies) {
+            size += Frames.HEADER_SIZE + body.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] body : bodies) {
+            buffer.putInt(body.length).put(body);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] body(int length, int seed) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) (i * 31 + seed);
+        }
+        return body;
+    }
+
+    private static List<byte[]> readAll(FrameReader reader, ReadableByteChannel channel) throws IOException {
+        List<byte[]> received = new ArrayList<>();
+        try {
+            while (true) {
+                reader.read(channel);
+                ByteBuffer frame;
+                while ((frame = reader.nextFrame()) != null) {
+                    byte[] copy = new byte[frame.remaining()];
+                    frame.get(copy);
+                    received.add(copy);
+                }
+            }
+        } catch (EOFException e) {
+            return received;
+        }
+    }
+
+    @Test
+    void cutsFramesSplitAcrossReads() throws IOException {
+        byte[] first = body(10, 1);
+        byte[] second = body(100_000, 2);
+        byte[] third = body(0, 3);
+
+        List<byte[]> received = readAll(new FrameReader(16, Frames.MAX_FRAME_SIZE),
+                chunked(frames(first, second, third), 777));
+
+        assertEquals(3, received.size());
+        assertArrayEquals(first, received.get(0));
+        assertArrayEquals(second, received.get(1));
+        assertArrayEquals(third, received.get(2));
+    }
+
+    @Test
+    void acceptsFrameOfExactlyTheLimit() throws IOException {
+        byte[] body = body(Frames.MAX_REQUEST_FRAME_SIZE, 4);
+
+        List<byte[]> received = readAll(new FrameReader(Frames.MAX_REQUEST_FRAME_SIZE), chunked(frames(body), 4096));
+
+        assertEquals(1, received.size());
+        assertArrayEquals(body, received.get(0));
+    }
+
+    @Test
+    void refusesHeaderAboveTheLimitBeforeTheBody() throws IOException {
+        FrameReader reader = new FrameReader(Frames.MAX_REQUEST_FRAME_SIZE);
+        ByteBuffer header = ByteBuffer.allocate(Frames.HEADER_SIZE).putInt(Frames.MAX_FRAME_SIZE);
+
+        reader.read(chunked(header.array(), Frames.HEADER_SIZE));
+
+        assertThrows(IOException.class, reader::nextFrame);
+    }
+
+    @Test
+    void refusesNegativeLength() throws IOException {
+        FrameReader reader = new FrameReader();
+        reader.read(chunked(ByteBuffer.allocate(Frames.HEADER_SIZE).putInt(-1).array(), Frames.HEADER_SIZE));
+
+        assertThrows(IOException.class, reader::nextFrame);
+    }
+
+    @Test
+    void waitsForTheWholeHeader() throws IOException {
+        FrameReader reader = new FrameReader();
+        reader.read(chunked(new byte[]{0, 0}, 2));
+
+        assertNull(reader.nextFrame());
+    }
+}
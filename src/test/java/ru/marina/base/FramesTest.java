@@ -0,0 +1,151 @@
+package ru.marina.base;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.model.Status;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FramesTest {
+    private static MusicBand band(long id, MusicGenre genre, Long labelBands) {
+        return new MusicBand(id, "Band \"" + id + "\"\nтест", new Coordinates(-1000.5, 314), new Date(1_700_000_000_123L),
+                3, 7, genre, new Label("Лейбл", labelBands, 12.5));
+    }
+
+    private static void assertSameBand(MusicBand expected, MusicBand actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCoordinates().getX(), actual.getCoordinates().getX());
+        assertEquals(expected.getCoordinates().getY(), actual.getCoordinates().getY());
+        assertEquals(expected.getCreationDate(), actual.getCreationDate());
+        assertEquals(expected.getNumberOfParticipants(), actual.getNumberOfParticipants());
+        assertEquals(expected.getAlbumsCount(), actual.getAlbumsCount());
+        assertEquals(expected.getMusicGenre(), actual.getMusicGenre());
+        assertEquals(expected.getLabel(), actual.getLabel());
+    }
+
+    /**
+     * Checks the length header of a frame and returns its body.
+     */
+    private static ByteBuffer body(ByteBuffer frame) throws IOException {
+        int length = frame.getInt();
+        Frames.checkLength(length);
+        assertEquals(length, frame.remaining());
+        return frame.slice();
+    }
+
+    @Test
+    void requestSurvivesTheRoundTrip() throws IOException {
+        Request request = new Request(new String[]{"update", "42", ""}, band(42, MusicGenre.POST_PUNK, 5L));
+        request.setId(Long.MAX_VALUE);
+
+        Request decoded = Frames.decodeRequest(body(Frames.encode(request)));
+
+        assertEquals(Long.MAX_VALUE, decoded.getId());
+        assertArrayEquals(request.getInput(), decoded.getInput());
+        assertSameBand(request.getMusicBand(), decoded.getMusicBand());
+    }
+
+    @Test
+    void requestWithoutBandOrNullables() throws IOException {
+        Request withoutBand = Frames.decodeRequest(body(Frames.encode(new Request(new String[]{"show"}))));
+        assertNull(withoutBand.getMusicBand());
+
+        MusicBand band = band(1, null, null);
+        Request decoded = Frames.decodeRequest(body(Frames.encode(new Request(new String[]{"add"}, band))));
+        assertSameBand(band, decoded.getMusicBand());
+    }
+
+    @Test
+    void responseSurvivesTheRoundTrip() throws IOException {
+        Response response = new Response(Status.OK, "2 item(s)", band(9, MusicGenre.BLUES, 1L));
+        response.setRequestId(17);
+        response.setPartial(true);
+        response.setMusicBands(List.of(band(1, MusicGenre.POP, 2L), band(2, null, null)));
+        response.setLabels(List.of(new Label("a", 1L, 2), new Label(null, null, 3)));
+        Date date = new Date(1_000_000);
+        response.setScalars(List.of(Scalar.of("long", 5L), Scalar.of("double", 0.25),
+                Scalar.of("date", date), Scalar.of("text", "ok")));
+        response.setRecords(List.of(List.of(Scalar.of("id", 1L), Scalar.of("label", (String) null)), List.of()));
+
+        Response decoded = Frames.decodeResponse(body(Frames.encode(response)));
+
+        assertEquals(17, decoded.getRequestId());
+        assertTrue(decoded.isPartial());
+        assertEquals(Status.OK, decoded.getStatus());
+        assertEquals("2 item(s)", decoded.getMessage());
+        assertSameBand(response.getMusicBand(), decoded.getMusicBand());
+        assertEquals(2, decoded.getMusicBands().size());
+        assertSameBand(response.getMusicBands().get(0), decoded.getMusicBands().get(0));
+        assertSameBand(response.getMusicBands().get(1), decoded.getMusicBands().get(1));
+        assertEquals(response.getLabels(), decoded.getLabels());
+        List<Scalar> scalars = decoded.getScalars();
+        assertEquals(5L, scalars.get(0).getLong());
+        assertEquals(0.25, scalars.get(1).getDouble());
+        assertEquals(date, scalars.get(2).getDate());
+        assertEquals("ok", scalars.get(3).getText());
+        assertEquals(2, decoded.getRecords().size());
+        assertEquals(1L, decoded.getRecords().get(0).get(0).getLong());
+        assertNull(decoded.getRecords().get(0).get(1).getText());
+        assertTrue(decoded.getRecords().get(1).isEmpty());
+    }
+
+    @Test
+    void everyStatusAndGenreFillsTheFrameExactly() throws IOException {
+        for (Status status : Status.values()) {
+            for (MusicGenre genre : MusicGenre.values()) {
+                MusicBand band = band(genre.ordinal() + 1, genre, (long) status.ordinal());
+                Request request = new Request(new String[]{"update", null, ""}, band);
+                ByteBuffer requestBody = body(Frames.encode(request));
+
+                Request decodedRequest = Frames.decodeRequest(requestBody);
+
+                assertEquals(0, requestBody.remaining());
+                assertArrayEquals(request.getInput(), decodedRequest.getInput());
+                assertSameBand(band, decodedRequest.getMusicBand());
+
+                Response response = new Response(status, null, band);
+                response.setMusicBands(List.of(band));
+                ByteBuffer responseBody = body(Frames.encode(response));
+
+                Response decodedResponse = Frames.decodeResponse(responseBody);
+
+                assertEquals(0, responseBody.remaining());
+                assertEquals(status, decodedResponse.getStatus());
+                assertNull(decodedResponse.getMessage());
+                assertSameBand(band, decodedResponse.getMusicBand());
+                assertSameBand(band, decodedResponse.getMusicBands().get(0));
+            }
+        }
+    }
+
+    @Test
+    void truncatedBodyIsCorrupted() throws IOException {
+        ByteBuffer body = body(Frames.encode(new Request(new String[]{"add"}, band(3, MusicGenre.POP, 1L))));
+        body.limit(body.limit() - 3);
+
+        assertThrows(IOException.class, () -> Frames.decodeRequest(body));
+    }
+
+    @Test
+    void checkLengthRejectsNegativeAndOversizedFrames() throws IOException {
+        Frames.checkLength(0);
+        Frames.checkLength(Frames.MAX_FRAME_SIZE);
+        assertThrows(IOException.class, () -> Frames.checkLength(-1));
+        assertThrows(IOException.class, () -> Frames.checkLength(Frames.MAX_FRAME_SIZE + 1));
+        assertThrows(IOException.class, () -> Frames.checkLength(Frames.MAX_REQUEST_FRAME_SIZE + 1,
+                Frames.MAX_REQUEST_FRAME_SIZE));
+    }
+}
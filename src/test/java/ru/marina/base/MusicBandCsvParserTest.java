@@ -0,0 +1,113 @@
+package ru.marina.base;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MusicBandCsvParserTest {
+    private static final String HEADER = "ALBUMSCOUNT,COORDINATES_X,COORDINATES_Y,CREATION_DATE,GENRE,"
+            + "ID,LABEL_BANDS,LABEL_NAME,LABEL_SALES,NAME,NUMBEROFPARTICIPANTS\n";
+
+    private final List<MusicBand> bands = new ArrayList<>();
+
+    private MusicBandCsvParser parse(String csv) throws IOException {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        return MusicBandCsvParser.parse(Channels.newChannel(new ByteArrayInputStream(bytes)), bands::add);
+    }
+
+    @Test
+    void quotedValuesKeepCommasQuotesAndLineBreaks() throws IOException {
+        MusicBandCsvParser parser = parse(HEADER
+                + "2,1.5,-3,1000,POP,7,12,\"label, \"\"quoted\"\"\nnext line\",0.5,\"say \"\"hi\"\"\",4\n"
+                + "\"3\",\"-0.25\",\"314\",\"2000\",\"BLUES\",\"8\",\"\",\"\",\"1\",\"\"\"\",\"1\"");
+
+        assertEquals(2, parser.getParsed());
+        assertEquals(0, parser.getSkipped());
+        MusicBand first = bands.get(0);
+        assertEquals(7, first.getId());
+        assertEquals("say \"hi\"", first.getName());
+        assertEquals(1.5, first.getCoordinates().getX());
+        assertEquals(-3, first.getCoordinates().getY());
+        assertEquals(1000, first.getCreationDate().getTime());
+        assertEquals(4, first.getNumberOfParticipants());
+        assertEquals(2, first.getAlbumsCount());
+        assertEquals(MusicGenre.POP, first.getMusicGenre());
+        assertEquals("label, \"quoted\"\nnext line", first.getLabel().getName());
+        assertEquals(12L, first.getLabel().getBands());
+        assertEquals(0.5, first.getLabel().getSales());
+        MusicBand second = bands.get(1);
+        assertEquals("\"", second.getName());
+        assertEquals(-0.25, second.getCoordinates().getX());
+        assertEquals(MusicGenre.BLUES, second.getMusicGenre());
+        assertEquals("", second.getLabel().getName());
+        assertNull(second.getLabel().getBands());
+    }
+
+    @Test
+    void headerIsMatchedInAnyOrderAndCase() throws IOException {
+        MusicBandCsvParser parser = parse("\uFEFF\"name\",id,Genre,numberOfParticipants,albumsCount,"
+                + "coordinates_x,coordinates_y,creation_date,label_sales,extra\r\n"
+                + "band,5,,3,1,0,0,1,2.5,ignored\r\n"
+                + "\r\n");
+
+        assertEquals(1, parser.getParsed());
+        MusicBand band = bands.get(0);
+        assertEquals("band", band.getName());
+        assertEquals(5, band.getId());
+        assertNull(band.getMusicGenre());
+        assertNull(band.getLabel().getName());
+        assertNull(band.getLabel().getBands());
+    }
+
+    @Test
+    void badRowsAreSkipped() throws IOException {
+        String valid = "1,1,1,1000,POP,1,1,l,1,good,1\n";
+        MusicBandCsvParser parser = parse(HEADER
+                + valid
+                + "1,1,1,1000,POP,2,1,l,1,too few\n"
+                + "1,1,1,1000,POP,3,1,l,1,name,1,extra\n"
+                + "1,1,1,1000,POP,4,1,l,1,\"open\"quote,1\n"
+                + "1,1,1,1000,POP,x5,1,l,1,name,1\n"
+                + "1,1,1,1000,POP,6,1,l,1,name,99999999999\n"
+                + "1,1,1,1000,JAZZ,7,1,l,1,name,1\n"
+                + "1,1,1,1000,POP,8,1,l,1,name,0\n"
+                + "1,1,1,1000,POP,9,1,l,1, ,1\n"
+                + "1,nan?,1,1000,POP,10,1,l,1,name,1\n"
+                + "1,1,315,1000,POP,11,1,l,1,name,1\n"
+                + "\n"
+                + valid.replace(",1,1,l,", ",12,1,l,"));
+
+        assertEquals(2, parser.getParsed());
+        assertEquals(10, parser.getSkipped());
+        assertEquals(List.of(1L, 12L), bands.stream().map(MusicBand::getId).toList());
+    }
+
+    @Test
+    void recordLongerThanTheBufferIsRead() throws IOException {
+        String name = "n".repeat(3 << 20);
+
+        MusicBandCsvParser parser = parse(HEADER + "1,1,1,1000,POP,1,1,l,1,\"" + name + "\",1");
+
+        assertEquals(1, parser.getParsed());
+        assertEquals(name, bands.get(0).getName());
+    }
+
+    @Test
+    void invalidHeaderIsRejected() throws IOException {
+        assertNull(parse(""));
+        assertThrows(IOException.class, () -> parse(HEADER.replace("ID,", "") + "1,1,1,1000,POP,1,l,1,name,1\n"));
+        assertThrows(IOException.class, () -> parse(HEADER.replace("LABEL_NAME", "NAME")));
+        assertThrows(IOException.class, () -> parse("\"ID,NAME\n"));
+    }
+}
@@ -0,0 +1,117 @@
+package ru.marina.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelCsvLoaderTest {
+    @TempDir
+    Path directory;
+
+    private static String describe(MusicBand band) {
+        return band.getId() + "|" + band.getName() + "|" + band.getCoordinates().getX() + "|"
+                + band.getCoordinates().getY() + "|" + band.getCreationDate().getTime() + "|"
+                + band.getNumberOfParticipants() + "|" + band.getAlbumsCount() + "|" + band.getMusicGenre() + "|"
+                + band.getLabel().getName() + "|" + band.getLabel().getBands() + "|" + band.getLabel().getSales();
+    }
+
+    /**
+     * Bands whose names and labels hold line breaks and quotes, so many chunk borders fall inside quotes.
+     */
+    private static List<MusicBand> bands(int count) {
+        List<MusicBand> bands = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            String name = switch ((int) (id % 4)) {
+                case 0 -> "plain " + id;
+                case 1 -> "line\nbreak " + id;
+                case 2 -> "\"quoted\"\n\"\n" + id + "\r\n,";
+                default -> "\n\"" + id;
+            };
+            String labelName = id % 3 == 0 ? "plain label" : "label\n\"" + id % 5 + "\"";
+            bands.add(new MusicBand(id, name, new Coordinates(id % 300, -id), new Date(1_600_000_000_000L + id * 1000),
+                    (int) (id % 9) + 1, 2, MusicGenre.values()[(int) (id % 3)], new Label(labelName, id, 0.5)));
+        }
+        return bands;
+    }
+
+    private static List<String> load(ParallelCsvLoader loader, Path path) throws IOException {
+        List<String> loaded = new ArrayList<>();
+        for (List<MusicBand> chunk : loader.load(path).getChunks()) {
+            for (MusicBand band : chunk) {
+                loaded.add(describe(band));
+            }
+        }
+        return loaded;
+    }
+
+    @Test
+    void everyChunkSizeGivesTheSameBandsInOrder() throws Exception {
+        List<MusicBand> bands = bands(60);
+        Path path = directory.resolve("bands.csv");
+        Serializer.serialize(bands, path.toString());
+        List<String> expected = bands.stream().map(ParallelCsvLoaderTest::describe).toList();
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            int size = (int) Files.size(path);
+            for (int chunkSize = 1; chunkSize <= size + 1; chunkSize += chunkSize < 64 ? 1 : 37) {
+                assertEquals(expected, load(new ParallelCsvLoader(chunkSize, pool), path), "chunk size " + chunkSize);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void unquotedRecordsAndMissingFinalLineBreak() throws IOException {
+        String csv = "\uFEFFid,name,coordinates_x,coordinates_y,creation_date,numberOfParticipants,albumsCount,"
+                + "genre,label_name,label_bands,label_sales\r\n"
+                + "1,first,1,2,1000,3,4,POP,l,5,6\r\n"
+                + "2,\"sec\r\nond\",1,2,2000,3,4,,,,6\r\n"
+                + "3,third,1,2,3000,3,4,BLUES,l,5,6";
+        Path path = directory.resolve("plain.csv");
+        Files.write(path, csv.getBytes(StandardCharsets.UTF_8));
+
+        for (int chunkSize = 1; chunkSize <= csv.length(); chunkSize++) {
+            List<String> loaded = load(new ParallelCsvLoader(chunkSize), path);
+            assertEquals(3, loaded.size(), "chunk size " + chunkSize);
+            assertEquals("2|sec\r\nond|1.0|2.0|2000|3|4|null||null|6.0", loaded.get(1), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void invalidRowIsSkipped() throws IOException {
+        Path path = directory.resolve("invalid.csv");
+        Files.writeString(path, "id,name,coordinates_x,coordinates_y,creation_date,numberOfParticipants,albumsCount,"
+                + "genre,label_name,label_bands,label_sales\n"
+                + "1,first,1,2,1000,3,4,POP,l,5,6\n"
+                + "2,second,1,2,2000,0,4,POP,l,5,6\n"
+                + "3,third,1,2,3000,3,4,POP,l,5,6\n");
+
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(16).load(path);
+
+        assertEquals(2, result.getParsed());
+        assertEquals(1, result.getSkipped());
+    }
+
+    @Test
+    void emptyFileHasNoBands() throws IOException {
+        Path path = Files.createFile(directory.resolve("empty.csv"));
+
+        assertEquals(List.of(), load(new ParallelCsvLoader(4), path));
+    }
+}
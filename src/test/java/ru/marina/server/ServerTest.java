@@ -0,0 +1,244 @@
+package ru.marina.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.marina.base.FrameReader;
+import ru.marina.base.Frames;
+import ru.marina.base.Request;
+import ru.marina.base.Response;
+import ru.marina.base.Serializer;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.model.Status;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerTest {
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 100;
+
+    @TempDir
+    Path directory;
+
+    private static InputStream systemIn;
+
+    private Server server;
+    private Thread loop;
+    private InetSocketAddress address;
+
+    /**
+     * Every server reads its console from System.in, which in the test JVM carries the commands of the test runner,
+     * so the servers get a console that stays silent instead.
+     */
+    @BeforeAll
+    static void silenceConsole() throws IOException {
+        systemIn = System.in;
+        System.setIn(new PipedInputStream(new PipedOutputStream()));
+    }
+
+    @AfterAll
+    static void restoreConsole() {
+        System.setIn(systemIn);
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        launch("collection.csv", List.of(), Server.DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    private void launch(String fileName, List<MusicBand> bands, int maxInFlight) throws Exception {
+        Path file = directory.resolve(fileName);
+        Serializer.serialize(bands, file.toString());
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        server = new Server(address, file.toString(), maxInFlight, 4);
+        loop = new Thread(server::initialize, "server-under-test");
+        loop.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        server.stop();
+        loop.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private SocketChannel connect() throws IOException, InterruptedException {
+        return connect(0);
+    }
+
+    /**
+     * Connects to the server, with the given receive buffer size or the system one if it is 0.
+     */
+    private SocketChannel connect(int receiveBuffer) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                if (receiveBuffer > 0) {
+                    channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBuffer);
+                }
+                channel.connect(address);
+                return channel;
+            } catch (IOException e) {
+                channel.close();
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static void send(SocketChannel channel, long id, String... input) throws IOException {
+        Request request = new Request(input);
+        request.setId(id);
+        ByteBuffer frame = Frames.encode(request);
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private static Response nextResponse(SocketChannel channel, FrameReader reader) throws IOException {
+        ByteBuffer frame;
+        while ((frame = reader.nextFrame()) == null) {
+            reader.read(channel);
+        }
+        return Frames.decodeResponse(frame);
+    }
+
+    /**
+     * Writes all requests of a client before reading any response, then checks that every request
+     * got exactly one final response.
+     */
+    private Void pipeline(int client) throws IOException, InterruptedException {
+        try (SocketChannel channel = connect()) {
+            for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                send(channel, client * 1_000_000L + i, i % 2 == 0 ? "info" : "help");
+            }
+            FrameReader reader = new FrameReader();
+            BitSet answered = new BitSet(REQUESTS_PER_CLIENT);
+            while (answered.cardinality() < REQUESTS_PER_CLIENT) {
+                Response response = nextResponse(channel, reader);
+                if (response.isPartial()) {
+                    continue;
+                }
+                int request = (int) (response.getRequestId() - client * 1_000_000L);
+                assertEquals(Status.OK, response.getStatus());
+                assertTrue(request >= 0 && request < REQUESTS_PER_CLIENT, "unknown request " + request);
+                assertTrue(!answered.get(request), "request " + request + " answered twice");
+                answered.set(request);
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void answersPipelinedRequestsOfManyClients() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Void>> done = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                int id = client;
+                done.add(clients.submit(() -> pipeline(id)));
+            }
+            for (Future<Void> future : done) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void closesConnectionAnnouncingAnOversizedRequest() throws Exception {
+        try (SocketChannel channel = connect()) {
+            channel.write(ByteBuffer.allocate(Frames.HEADER_SIZE).putInt(0, Frames.MAX_REQUEST_FRAME_SIZE + 1));
+
+            assertThrows(EOFException.class, () -> nextResponse(channel, new FrameReader()));
+        }
+    }
+
+    /**
+     * Sends the request again until the answer has the status, and returns the number of attempts.
+     */
+    private static int awaitStatus(SocketChannel channel, FrameReader reader, Status status)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for (int attempt = 1; ; attempt++) {
+            send(channel, attempt, "info");
+            Response response = nextResponse(channel, reader);
+            assertEquals(attempt, response.getRequestId());
+            if (response.getStatus() == status) {
+                return attempt;
+            }
+            assertTrue(System.nanoTime() < deadline, "no " + status + " answer");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void answersBusyWhileTheOnlySlotIsTaken() throws Exception {
+        stop();
+        // far more than the stream buffer limit and the socket buffers hold together
+        int count = 150_000;
+        List<MusicBand> bands = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            bands.add(new MusicBand(id, "band " + id, new Coordinates(0, 0), new Date(id), 1, 1,
+                    MusicGenre.POP, new Label("label", 1L, 1)));
+        }
+        launch("busy.csv", bands, 1);
+
+        // a fixed receive buffer, so the listing cannot vanish into an auto-tuned socket buffer
+        try (SocketChannel slow = connect(64 * 1024); SocketChannel other = connect()) {
+            FrameReader slowReader = new FrameReader();
+            send(slow, 1, "show");
+            Response first = nextResponse(slow, slowReader);
+            assertTrue(first.isPartial());
+
+            // the listing stalls on the slow client and keeps the only slot
+            FrameReader otherReader = new FrameReader();
+            awaitStatus(other, otherReader, Status.BUSY);
+
+            int shown = first.getMusicBands().size();
+            Response response;
+            do {
+                response = nextResponse(slow, slowReader);
+                shown += response.getMusicBands().size();
+            } while (response.isPartial());
+            assertEquals(Status.OK, response.getStatus());
+            assertEquals(count, shown);
+            awaitStatus(other, otherReader, Status.OK);
+        }
+    }
+}
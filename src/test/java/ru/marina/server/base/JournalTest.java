@@ -0,0 +1,295 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.marina.base.Serializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static ru.marina.server.base.SpatialGridTest.band;
+
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    private Path writeJournal() throws IOException {
+        Path path = directory.resolve("collection.journal");
+        MusicBandStore store = new MusicBandStore("objects");
+        try (Journal journal = Journal.open(path)) {
+            store.setJournal(journal);
+            store.add(band(1, 1, 1));
+            store.add(band(2, 2, 2));
+            store.add(band(3, 3, 3));
+            store.remove(2);
+        }
+        return path;
+    }
+
+    @Test
+    void replayRestoresTheChanges() throws IOException {
+        Path path = writeJournal();
+        MusicBandStore restored = new MusicBandStore("objects");
+
+        assertEquals(4, Journal.replay(path, restored));
+
+        assertEquals(2, restored.size());
+        assertNotNull(restored.get(1));
+        assertNull(restored.get(2));
+        assertNotNull(restored.get(3));
+    }
+
+    @Test
+    void replayCutsOffAnIncompleteRecord() throws IOException {
+        Path path = writeJournal();
+        long size = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        MusicBandStore restored = new MusicBandStore("objects");
+
+        assertEquals(3, Journal.replay(path, restored));
+
+        assertNotNull(restored.get(2));
+        long cut = Files.size(path);
+        assertTrue(cut < size - 3);
+        // the file is clean now, a second replay reads the same records to its end
+        assertEquals(3, Journal.replay(path, new MusicBandStore("objects")));
+        assertEquals(cut, Files.size(path));
+    }
+
+    @Test
+    void replayStopsAtADamagedRecord() throws IOException {
+        Path path = writeJournal();
+        byte[] bytes = Files.readAllBytes(path);
+        // the last byte of the first record's body
+        int first = ByteBuffer.wrap(bytes).getInt(0);
+        bytes[Integer.BYTES * 2 + first - 1] ^= 0x55;
+        Files.write(path, bytes);
+        MusicBandStore restored = new MusicBandStore("objects");
+
+        assertEquals(0, Journal.replay(path, restored));
+
+        assertEquals(0, restored.size());
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    void appendsAfterReopenAreReplayed() throws IOException {
+        Path path = writeJournal();
+        try (Journal journal = Journal.open(path)) {
+            journal.appendClear();
+            journal.appendPut(band(7, 7, 7));
+        }
+        MusicBandStore restored = new MusicBandStore("objects");
+
+        assertEquals(6, Journal.replay(path, restored));
+
+        assertEquals(1, restored.size());
+        assertNotNull(restored.get(7));
+    }
+
+    @Test
+    void replayOfMissingFileAppliesNothing() throws IOException {
+        assertEquals(0, Journal.replay(directory.resolve("missing"), new MusicBandStore("objects")));
+    }
+
+    @Test
+    void refusesChangesAfterAFailedWrite() throws IOException {
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full), "needs /dev/full to make the writes fail");
+        MusicBandStore store = new MusicBandStore("objects");
+        try (Journal journal = Journal.open(full)) {
+            store.setJournal(journal);
+            assertThrows(UncheckedIOException.class, () -> store.add(band(1, 1, 1)));
+            assertThrows(UncheckedIOException.class, () -> store.add(band(2, 2, 2)));
+            assertThrows(UncheckedIOException.class, journal::appendClear);
+
+            // the refused change was never applied
+            assertNull(store.get(2));
+        }
+    }
+
+    /**
+     * A journal file whose writes start failing when told to, as on a full or broken disk.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel file;
+        private volatile boolean failing;
+
+        private FailingChannel(FileChannel file) {
+            this.file = file;
+        }
+
+        private void check() throws IOException {
+            if (failing) {
+                throw new IOException("Injected write failure");
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            check();
+            return file.write(source);
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            check();
+            return file.write(sources, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            check();
+            return file.write(source, position);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            check();
+            file.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            return file.read(destination);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+            return file.read(destinations, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer destination, long position) throws IOException {
+            return file.read(destination, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return file.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            check();
+            return file.transferFrom(source, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+
+    private static FailingChannel failingChannel(Path path) throws IOException {
+        return new FailingChannel(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+    }
+
+    @Test
+    void storeFailsWhenAnAppliedChangeIsLost() throws IOException {
+        Path path = directory.resolve("collection.journal");
+        FailingChannel channel = failingChannel(path);
+        MusicBandStore store = new MusicBandStore("objects");
+        try (Journal journal = Journal.open(path, channel)) {
+            store.setJournal(journal);
+            store.add(band(1, 1, 1));
+            channel.failing = true;
+
+            assertThrows(UncheckedIOException.class, () -> store.add(band(2, 2, 2)));
+
+            // the lost change had been applied, so the store refuses to go on from it
+            assertTrue(store.isFailed());
+            assertNotNull(journal.getFailure());
+            assertThrows(UncheckedIOException.class, () -> store.remove(1));
+            assertNotNull(store.get(1));
+            try (Journal next = Journal.open(directory.resolve("next.journal"))) {
+                assertThrows(UncheckedIOException.class, () -> store.switchJournal(next));
+            }
+        }
+        MusicBandStore restored = new MusicBandStore("objects");
+        assertEquals(1, Journal.replay(path, restored));
+        assertNull(restored.get(2));
+    }
+
+    @Test
+    void noSnapshotAfterALostChange() throws Exception {
+        Path file = directory.resolve("collection.csv");
+        MusicBandStore store = new MusicBandStore("objects");
+        store.add(band(1, 1, 1));
+        Serializer.serialize(store.values(), file.toString());
+        byte[] saved = Files.readAllBytes(file);
+        try (SnapshotManager snapshots = new SnapshotManager(store, file)) {
+            snapshots.recover();
+            Path path = directory.resolve("failing.journal");
+            FailingChannel channel = failingChannel(path);
+            Journal failing = Journal.open(path, channel);
+            store.getJournal().close();
+            store.setJournal(failing);
+            channel.failing = true;
+            assertThrows(UncheckedIOException.class, () -> store.add(band(2, 2, 2)));
+
+            CompletionException refused = assertThrows(CompletionException.class, () -> snapshots.snapshot().join());
+
+            assertTrue(refused.getCause() instanceof IOException);
+            assertArrayEquals(saved, Files.readAllBytes(file));
+            assertFalse(snapshots.getSnapshotCount() > 0);
+        }
+    }
+}
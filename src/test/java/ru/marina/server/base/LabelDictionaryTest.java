@@ -0,0 +1,100 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LabelDictionaryTest {
+    private static MusicBand signed(long id, Label label) {
+        return new MusicBand(id, "band" + id, new Coordinates(id, id), new Date(id), 1, 1, MusicGenre.POP,
+                new Label(label.getName(), label.getBands(), label.getSales()));
+    }
+
+    @Test
+    void labelIsDroppedWhenItsLastBandIsReleased() {
+        LabelDictionary labels = new LabelDictionary();
+        Label first = labels.intern(new Label("label", 1L, 2));
+
+        assertSame(first, labels.intern(new Label("label", 1L, 2)));
+        labels.release(new Label("label", 1L, 2));
+        assertEquals(1, labels.size());
+        assertTrue(labels.containsName("label"));
+
+        labels.release(new Label("label", 1L, 2));
+
+        assertEquals(0, labels.size());
+        assertFalse(labels.containsName("label"));
+        assertEquals(List.of(), labels.labels());
+        assertThrows(IllegalArgumentException.class, () -> labels.numberOf(first));
+    }
+
+    @Test
+    void extraReleaseDoesNotGoBelowZero() {
+        LabelDictionary labels = new LabelDictionary();
+        Label label = new Label("label", null, 1);
+        labels.intern(label);
+        labels.release(label);
+
+        labels.release(label);
+        labels.release(new Label("never interned", null, 1));
+        labels.intern(label);
+        labels.release(label);
+
+        assertEquals(0, labels.size());
+    }
+
+    @Test
+    void numbersStayWhileReferredToAndAreReused() {
+        LabelDictionary labels = new LabelDictionary();
+        Label a = labels.intern(new Label("a", null, 1));
+        Label b = labels.intern(new Label("b", null, 1));
+        Label c = labels.intern(new Label("c", null, 1));
+        int numberOfA = labels.numberOf(a);
+        int numberOfB = labels.numberOf(b);
+        int numberOfC = labels.numberOf(c);
+
+        labels.release(b);
+        Label d = labels.intern(new Label("d", null, 1));
+
+        assertEquals(numberOfB, labels.numberOf(d));
+        assertSame(d, labels.label(numberOfB));
+        assertEquals(numberOfA, labels.numberOf(a));
+        assertEquals(numberOfC, labels.numberOf(c));
+        assertSame(a, labels.label(numberOfA));
+    }
+
+    @Test
+    void storeForgetsALabelNoBandHas() {
+        MusicBandStore store = new MusicBandStore("objects");
+        Label shared = new Label("shared", 5L, 1);
+        Label other = new Label("other", null, 2);
+        store.add(signed(1, shared));
+        store.add(signed(2, shared));
+        store.add(signed(3, other));
+        assertEquals(2, store.distinctLabels().size());
+        assertSame(store.get(1).getLabel(), store.get(2).getLabel());
+
+        store.replace(3, signed(3, shared));
+        assertEquals(List.of(shared), store.distinctLabels());
+
+        store.remove(1);
+        store.removeCreatedBefore(new Date(3));
+        assertEquals(List.of(shared), store.distinctLabels());
+        store.remove(3);
+
+        assertEquals(List.of(), store.distinctLabels());
+        store.add(signed(4, other));
+        assertEquals(List.of(other), store.distinctLabels());
+    }
+}
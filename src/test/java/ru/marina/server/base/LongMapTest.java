@@ -0,0 +1,52 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongMapTest {
+    @Test
+    void matchesHashMapThroughPutsAndRemoves() {
+        Random random = new Random(3);
+        LongMap<String> map = new LongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            long key = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v" + step), map.put(key, "v" + step));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void clearedMapIsUsableAgain() {
+        LongMap<Long> map = new LongMap<>();
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key, key);
+        }
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.iterator().hasNext());
+        assertNull(map.get(5));
+        for (long key = 1; key <= 100; key++) {
+            map.put(key, -key);
+        }
+        assertEquals(100, map.size());
+        assertEquals(-42L, map.get(42));
+    }
+}
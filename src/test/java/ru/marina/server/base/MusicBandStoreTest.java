@@ -0,0 +1,416 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.marina.server.base.SpatialGridTest.band;
+
+class MusicBandStoreTest {
+    private static final Label[] LABELS = {
+            new Label("first", 10L, 1.5), new Label("second", null, 2), new Label(null, 3L, 0.25),
+            new Label(null, null, 7), new Label("метка", 1L, 1)};
+
+    static Stream<String> layouts() {
+        return Stream.of("objects", "columns", "offheap");
+    }
+
+    static String describe(MusicBand band) {
+        return band == null ? "null" : band.getId() + "|" + band.getName() + "|" + band.getCoordinates().getX() + "|"
+                + band.getCoordinates().getY() + "|" + band.getCreationDate().getTime() + "|"
+                + band.getNumberOfParticipants() + "|" + band.getAlbumsCount() + "|" + band.getMusicGenre() + "|"
+                + band.getLabel().getName() + "|" + band.getLabel().getBands() + "|" + band.getLabel().getSales();
+    }
+
+    static List<String> describe(List<MusicBand> bands) {
+        return bands.stream().map(MusicBandStoreTest::describe).toList();
+    }
+
+    private static List<String> byId(List<MusicBand> bands) {
+        return bands.stream().sorted(Comparator.comparing(MusicBand::getId)).map(MusicBandStoreTest::describe).toList();
+    }
+
+    /**
+     * A band with every field depending on its ID, and some of them left empty.
+     */
+    private static MusicBand sample(long id, int participants) {
+        String name = switch ((int) (id % 4)) {
+            case 0 -> "band " + id;
+            case 1 -> "группа с длинным названием, которое не помещается в запись " + id;
+            case 2 -> "x".repeat(48);
+            default -> "b" + id;
+        };
+        MusicGenre genre = id % 5 == 0 ? null : MusicGenre.values()[(int) (id % MusicGenre.values().length)];
+        Label label = LABELS[(int) (id % LABELS.length)];
+        return new MusicBand(id, name, new Coordinates(id % 600 - 300, -(double) id / 7),
+                new Date(1_600_000_000_000L + id * 1000), participants, (int) (id % 7) + 1, genre,
+                new Label(label.getName(), label.getBands(), label.getSales()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void nearestWithHugeCountReturnsWholeCollection(String layout) {
+        MusicBandStore store = new MusicBandStore(layout);
+        store.add(band(1, 1, 1));
+        store.add(band(2, 2, 2));
+        store.add(band(3, 3, 3));
+
+        List<MusicBand> found = store.nearest(0, 0, 2_000_000_000);
+
+        assertEquals(List.of(1L, 2L, 3L), found.stream().map(MusicBand::getId).toList());
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void nearestWithCountBiggerThanCollection(String layout) {
+        MusicBandStore store = new MusicBandStore(layout);
+        store.add(band(1, 50, 50));
+        store.add(band(2, -50, -50));
+
+        assertEquals(2, store.nearest(10, 10, 5).size());
+        assertEquals(1L, store.nearest(10, 10, 5).get(0).getId());
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void nearestOnEmptyStore(String layout) {
+        assertTrue(new MusicBandStore(layout).nearest(0, 0, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void keepsEveryFieldAndEmptyValue(String layout) {
+        MusicBandStore store = new MusicBandStore(layout);
+        List<MusicBand> bands = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            bands.add(sample(id, (int) id));
+        }
+        List<String> expected = describe(bands);
+
+        store.addAll(bands);
+
+        for (int i = 0; i < bands.size(); i++) {
+            assertEquals(expected.get(i), describe(store.get(bands.get(i).getId())));
+        }
+        assertEquals(expected, byId(store.values()));
+        assertEquals(new HashSet<>(List.of(LABELS)), new HashSet<>(store.distinctLabels()));
+        assertNull(store.get(41));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void replaceKeepsTheIdAndCreationDate(String layout) {
+        MusicBandStore store = new MusicBandStore(layout);
+        store.add(sample(1, 3));
+        store.add(sample(2, 4));
+        Date created = store.get(1).getCreationDate();
+
+        MusicBand next = new MusicBand("replaced", new Coordinates(-5, 6), 10, 2, null, new Label(null, null, 1));
+        assertTrue(store.replace(1, next));
+        assertFalse(store.replace(3, sample(3, 1)));
+
+        MusicBand replaced = store.get(1);
+        assertEquals(1L, replaced.getId());
+        assertEquals(created, replaced.getCreationDate());
+        assertEquals("replaced", replaced.getName());
+        assertEquals(-5, replaced.getCoordinates().getX());
+        assertNull(replaced.getMusicGenre());
+        assertNull(replaced.getLabel().getName());
+        assertNull(replaced.getLabel().getBands());
+        assertEquals(2, store.size());
+        assertEquals(14, store.participantStatistics().getSum());
+        assertEquals(List.of(2L, 1L), store.pageByParticipants(0, 10).stream().map(MusicBand::getId).toList());
+        assertEquals(List.of(1L), store.nearest(-5, 6, 1).stream().map(MusicBand::getId).toList());
+        assertFalse(store.distinctLabels().contains(LABELS[1]));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void removeClearAndAddAgain(String layout) {
+        MusicBandStore store = new MusicBandStore(layout);
+        // more bands than an off-heap chunk holds
+        int count = OffHeapBandStorage.CHUNK_RECORDS + 500;
+        List<MusicBand> bands = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            bands.add(sample(id, (int) (id % 20) + 1));
+        }
+        store.addAll(bands);
+
+        for (long id = 2; id <= count; id += 2) {
+            assertEquals(describe(bands.get((int) id - 1)), describe(store.remove(id)));
+            assertNull(store.get(id));
+        }
+        assertNull(store.remove(2));
+        assertEquals(count - count / 2, store.size());
+        assertEquals(describe(bands.get(count - 2)), describe(store.get(count - 1)));
+
+        assertEquals(count - count / 2, store.clear());
+        assertEquals(0, store.size());
+        assertTrue(store.values().isEmpty());
+        assertTrue(store.distinctLabels().isEmpty());
+        assertEquals(0, store.participantStatistics().getCount());
+        assertNull(store.oldest());
+        assertNull(store.get(1));
+
+        store.addAll(bands.subList(0, 100));
+        assertEquals(100, store.size());
+        assertEquals(describe(bands.subList(0, 100)), byId(store.values()));
+        assertEquals(new HashSet<>(List.of(LABELS)), new HashSet<>(store.distinctLabels()));
+        assertEquals(1L, store.oldest().getId());
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void removeCreatedBeforeKeepsBandsOfTheBoundaryDate(String layout) {
+        MusicBandStore store = new MusicBandStore(layout);
+        List<MusicBand> bands = new ArrayList<>();
+        // three bands per date, some of the dates before the epoch, added out of order
+        for (long id = 1; id <= 3000; id++) {
+            long date = (id * 7919 % 1000) - 100;
+            bands.add(new MusicBand(id, "band" + id, new Coordinates(0, 0), new Date(date), 1, 1,
+                    MusicGenre.POP, new Label("label", 1L, 1)));
+        }
+        store.addAll(bands);
+
+        long[] boundaries = {Long.MIN_VALUE, -100, -99, 0, 1, 500, 500, 899, 900, Long.MAX_VALUE};
+        for (long boundary : boundaries) {
+            int expected = (int) bands.stream()
+                    .filter(band -> band.getCreationDate().getTime() < boundary)
+                    .count();
+            bands.removeIf(band -> band.getCreationDate().getTime() < boundary);
+
+            assertEquals(expected, store.removeCreatedBefore(new Date(boundary)), "before " + boundary);
+
+            assertEquals(bands.size(), store.size());
+            assertEquals(bands.size(), store.participantStatistics().getCount());
+            assertEquals(byId(bands), byId(store.values()));
+            MusicBand oldest = store.oldest();
+            if (bands.isEmpty()) {
+                assertNull(oldest);
+            } else {
+                assertEquals(Math.max(boundary, -100), oldest.getCreationDate().getTime());
+            }
+        }
+        assertTrue(store.distinctLabels().isEmpty());
+    }
+
+    /**
+     * Checks what a reader sees at one moment: the counts and sums of the aggregates and of the indexes
+     * must match the bands, and a page of the participants index must be in its order.
+     */
+    private static void assertConsistent(List<MusicBand> values, ParticipantStatistics statistics,
+                                         List<MusicBand> page, List<Label> labels) {
+        assertEquals(values.size(), statistics.getCount());
+        assertEquals(values.stream().mapToLong(MusicBand::getNumberOfParticipants).sum(), statistics.getSum());
+        long genreSum = statistics.getSum(null);
+        for (MusicGenre genre : MusicGenre.values()) {
+            genreSum += statistics.getSum(genre);
+        }
+        assertEquals(statistics.getSum(), genreSum);
+        assertEquals(values.size(), page.size());
+        assertEquals(byId(values), byId(page));
+        assertSorted(page);
+        assertEquals(new HashSet<>(values.stream().map(MusicBand::getLabel).toList()), new HashSet<>(labels));
+    }
+
+    private static void assertSorted(List<MusicBand> page) {
+        for (int i = 1; i < page.size(); i++) {
+            MusicBand previous = page.get(i - 1);
+            MusicBand next = page.get(i);
+            assertTrue(previous.getNumberOfParticipants() < next.getNumberOfParticipants()
+                    || previous.getNumberOfParticipants() == next.getNumberOfParticipants()
+                    && previous.getId() < next.getId(), "page out of order at " + i);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void readersNeverSeeHalfOfAChange(String layout) throws Exception {
+        MusicBandStore store = new MusicBandStore(layout);
+        int readers = 4;
+        int writers = 2;
+        ExecutorService threads = Executors.newFixedThreadPool(readers + writers);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                Random random = new Random(writer);
+                writes.add(threads.submit(() -> {
+                    for (int step = 0; step < 4000; step++) {
+                        long id = 1 + random.nextInt(500);
+                        int operation = random.nextInt(100);
+                        if (operation == 0) {
+                            store.clear();
+                        } else if (operation < 5) {
+                            store.removeCreatedBefore(new Date(1_600_000_000_000L + random.nextInt(500) * 1000L));
+                        } else if (operation < 35) {
+                            store.replace(id, sample(id, 1 + random.nextInt(30)));
+                        } else {
+                            store.add(sample(id, 1 + random.nextInt(30)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<Integer>> reads = new ArrayList<>();
+            for (int reader = 0; reader < readers; reader++) {
+                reads.add(threads.submit(() -> {
+                    int checks = 0;
+                    while (writing.get() || checks == 0) {
+                        // every call alone is one consistent view
+                        assertSorted(store.pageByParticipants(0, Integer.MAX_VALUE));
+                        ParticipantStatistics statistics = store.participantStatistics();
+                        assertEquals(statistics.getCount() == 0, statistics.getMin().isEmpty());
+                        assertTrue(store.values().stream().allMatch(Objects::nonNull));
+                        assertTrue(store.distinctLabels().stream().allMatch(Objects::nonNull));
+                        // and several calls under one read lock see the same moment
+                        store.read(() -> {
+                            assertConsistent(store.values(), store.participantStatistics(),
+                                    store.pageByParticipants(0, Integer.MAX_VALUE), store.distinctLabels());
+                            return null;
+                        });
+                        checks++;
+                    }
+                    return checks;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get(2, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            for (Future<Integer> read : reads) {
+                assertTrue(read.get(2, TimeUnit.MINUTES) > 0);
+            }
+            store.read(() -> {
+                assertConsistent(store.values(), store.participantStatistics(),
+                        store.pageByParticipants(0, Integer.MAX_VALUE), store.distinctLabels());
+                return null;
+            });
+        } finally {
+            writing.set(false);
+            threads.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void parallelScanFindsWhatOneThreadFinds(String layout) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            MusicBandStore parallel = new MusicBandStore(layout, pool);
+            MusicBandStore sequential = new MusicBandStore(layout, single);
+            List<MusicBand> bands = new ArrayList<>();
+            for (long id = 1; id <= MusicBandStore.PARALLEL_SCAN_THRESHOLD + 5000; id++) {
+                bands.add(sample(id, (int) (id % 20) + 1));
+            }
+            parallel.addAll(bands);
+            sequential.addAll(bands);
+            for (long id = 3; id <= bands.size(); id += 3) {
+                parallel.remove(id);
+                sequential.remove(id);
+            }
+            BandQuery query = new BandQuery();
+            query.setNamePrefix("b");
+            query.setGenre(MusicGenre.POP);
+            query.setLimit(Integer.MAX_VALUE);
+
+            BandQuery.Result found = parallel.query(query);
+
+            assertEquals("full scan", found.getPlan());
+            List<String> expected = describe(parallel.values().stream()
+                    .filter(band -> band.getName().startsWith("b") && band.getMusicGenre() == MusicGenre.POP)
+                    .sorted(Comparator.comparing(MusicBand::getId)).toList());
+            assertEquals(expected, describe(found.getMusicBands()));
+            assertEquals(expected, describe(sequential.query(query).getMusicBands()));
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
+
+    private static List<List<String>> results(MusicBandStore store) {
+        BandQuery byLabel = new BandQuery();
+        byLabel.setLabelName("метка");
+        BandQuery byParticipants = new BandQuery();
+        byParticipants.setParticipants(3, 5);
+        BandQuery inBox = new BandQuery();
+        inBox.setX(-20, 20);
+        inBox.setY(-1000, -10);
+        BandQuery byName = new BandQuery();
+        byName.setNamePrefix("band");
+        byName.setOrder(BandField.NAME, true);
+        byName.setLimit(30);
+        List<List<String>> results = new ArrayList<>();
+        results.add(byId(store.values()));
+        for (BandQuery query : new BandQuery[]{byLabel, byParticipants, inBox, byName}) {
+            results.add(describe(store.query(query).getMusicBands()));
+        }
+        results.add(describe(store.pageByParticipants(7, 40)));
+        results.add(describe(store.nearest(10, -100, 25)));
+        results.add(List.of(describe(store.oldest())));
+        ParticipantStatistics statistics = store.participantStatistics();
+        results.add(List.of(statistics.getCount() + " " + statistics.getSum() + " " + statistics.getMin()
+                + " " + statistics.getMax()));
+        results.add(store.distinctLabels().stream().map(Label::toString).sorted().toList());
+        return results;
+    }
+
+    @Test
+    void everyLayoutGivesTheSameResults() {
+        List<MusicBandStore> stores = layouts().map(MusicBandStore::new).toList();
+        Random random = new Random(17);
+        for (int round = 0; round < 30; round++) {
+            for (int step = 0; step < 300; step++) {
+                long id = 1 + random.nextInt(2000);
+                int operation = random.nextInt(10);
+                MusicBand band = sample(id, 1 + random.nextInt(10));
+                for (MusicBandStore store : stores) {
+                    MusicBand copy = new MusicBand(band.getId(), band.getName(), band.getCoordinates(),
+                            band.getCreationDate(), band.getNumberOfParticipants(), band.getAlbumsCount(),
+                            band.getMusicGenre(), new Label(band.getLabel().getName(), band.getLabel().getBands(),
+                            band.getLabel().getSales()));
+                    switch (operation) {
+                        case 0, 1 -> store.remove(id);
+                        case 2 -> store.replace(id, copy);
+                        default -> store.add(copy);
+                    }
+                }
+            }
+            if (round % 10 == 9) {
+                Date before = new Date(1_600_000_000_000L + random.nextInt(2000) * 1000L);
+                stores.forEach(store -> store.removeCreatedBefore(before));
+            }
+            if (round == 19) {
+                stores.forEach(MusicBandStore::clear);
+            }
+            List<List<String>> expected = results(stores.get(0));
+            for (MusicBandStore store : stores) {
+                assertEquals(expected, results(store));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures a full scan of a big collection with 1 to N threads for every storage layout.
+ * It only runs when asked for: {@code mvn test -Dtest=ScanBenchmark -Dbenchmark=true}.
+ * The size of the collection is set by {@code -Dbenchmark.bands}, one million by default.
+ */
+class ScanBenchmark {
+    private static final int ROUNDS = 10;
+
+    @Test
+    void fullScan() {
+        assumeTrue(Boolean.getBoolean("benchmark"), "run with -Dbenchmark=true");
+        int count = Integer.getInteger("benchmark.bands", 1_000_000);
+        List<MusicBand> bands = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            bands.add(new MusicBand(id, "band " + id, new Coordinates(id % 600 - 300, id % 500 - 250),
+                    new Date(1_600_000_000_000L + id), (int) (id % 20) + 1, 1,
+                    MusicGenre.values()[(int) (id % MusicGenre.values().length)], new Label("label " + id % 100, 1L, 1)));
+        }
+        BandQuery query = new BandQuery();
+        query.setNamePrefix("band 1");
+        query.setGenre(MusicGenre.POP);
+        query.setLimit(Integer.MAX_VALUE);
+
+        System.out.printf("%-8s %7s %10s %8s%n", "layout", "threads", "ms/scan", "speedup");
+        for (String layout : new String[]{"objects", "columns", "offheap"}) {
+            double single = 0;
+            int expected = -1;
+            for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    MusicBandStore store = new MusicBandStore(layout, pool);
+                    store.addAll(bands);
+                    int found = store.query(query).getMusicBands().size();
+                    if (expected < 0) {
+                        expected = found;
+                    }
+                    assertEquals(expected, found);
+                    long start = System.nanoTime();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        store.query(query);
+                    }
+                    double millis = (double) TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000 / ROUNDS;
+                    if (threads == 1) {
+                        single = millis;
+                    }
+                    System.out.printf("%-8s %7d %10.1f %8.2f%n", layout, threads, millis, single / millis);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.marina.base.BinarySnapshot;
+import ru.marina.base.Deserializer;
+import ru.marina.base.Serializer;
+import ru.marina.model.MusicBand;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.marina.server.base.SpatialGridTest.band;
+
+class SnapshotManagerTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> state(MusicBandStore store) {
+        return store.values().stream()
+                .sorted(Comparator.comparing(MusicBand::getId))
+                .map(MusicBandStoreTest::describe)
+                .toList();
+    }
+
+    /**
+     * Makes every kind of change the journal records.
+     */
+    private static void change(MusicBandStore store, long first) {
+        for (long id = first; id < first + 5; id++) {
+            store.add(band(id, id, -id));
+        }
+        store.replace(first + 1, band(first + 1, 100, 100));
+        store.remove(first + 2);
+        store.removeCreatedBefore(new Date(first + 1));
+    }
+
+    private Map<Path, byte[]> segments(Path file) throws IOException {
+        Map<Path, byte[]> segments = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, file.getFileName() + ".wal.*")) {
+            for (Path segment : files) {
+                segments.put(segment, Files.readAllBytes(segment));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Starts the way the server does: loads the collection file and replays the journal segments left next to it.
+     */
+    private static SnapshotManager start(MusicBandStore store, Path file) throws IOException {
+        if (BinarySnapshot.isBinary(file)) {
+            store.addAll(BinarySnapshot.read(file));
+        } else {
+            Deserializer.deserialize(file.toString(), store::add);
+        }
+        SnapshotManager snapshots = new SnapshotManager(store, file);
+        snapshots.recover();
+        return snapshots;
+    }
+
+    @Test
+    void restartReplaysTheChangesAfterTheLastSnapshot() throws Exception {
+        Path file = directory.resolve("collection" + BinarySnapshot.EXTENSION);
+        BinarySnapshot.write(List.of(), file);
+        MusicBandStore store = new MusicBandStore("objects");
+        try (SnapshotManager snapshots = start(store, file)) {
+            change(store, 1);
+            assertEquals(3, snapshots.snapshot().join().getMusicBands());
+            change(store, 10);
+            store.clear();
+            change(store, 20);
+        }
+
+        MusicBandStore restarted = new MusicBandStore("objects");
+        try (SnapshotManager ignored = start(restarted, file)) {
+            assertEquals(state(store), state(restarted));
+        }
+    }
+
+    @Test
+    void crashBeforeTheSegmentsAreDeletedGivesTheSameState() throws Exception {
+        Path file = directory.resolve("collection" + BinarySnapshot.EXTENSION);
+        BinarySnapshot.write(List.of(band(100, 1, 1)), file);
+        MusicBandStore store = new MusicBandStore("objects");
+        Map<Path, byte[]> covered;
+        try (SnapshotManager snapshots = start(store, file)) {
+            change(store, 1);
+            store.clear();
+            change(store, 10);
+            covered = segments(file);
+            snapshots.snapshot().join();
+            assertTrue(segments(file).keySet().stream().noneMatch(covered::containsKey));
+            change(store, 20);
+            store.remove(11);
+        }
+        // the file was replaced but the process stopped before the covered segments were deleted
+        for (Map.Entry<Path, byte[]> segment : covered.entrySet()) {
+            Files.write(segment.getKey(), segment.getValue());
+        }
+
+        for (int restart = 0; restart < 2; restart++) {
+            MusicBandStore restarted = new MusicBandStore("objects");
+            try (SnapshotManager ignored = start(restarted, file)) {
+                assertEquals(state(store), state(restarted), "restart " + restart);
+            }
+        }
+    }
+
+    @Test
+    void failedSnapshotKeepsTheFileAndTheSegments() throws Exception {
+        Path file = directory.resolve("collection.csv");
+        MusicBandStore store = new MusicBandStore("objects");
+        store.add(band(100, 1, 1));
+        Serializer.serialize(store.values(), file.toString());
+        byte[] saved = Files.readAllBytes(file);
+        store.clear();
+        try (SnapshotManager snapshots = start(store, file)) {
+            change(store, 1);
+            // the temporary file cannot be created where a directory stands
+            Files.createDirectory(directory.resolve("collection.csv.tmp"));
+
+            CompletionException failed = assertThrows(CompletionException.class, () -> snapshots.snapshot().join());
+
+            assertTrue(failed.getCause() instanceof IOException);
+            assertArrayEquals(saved, Files.readAllBytes(file));
+            assertFalse(segments(file).isEmpty());
+            assertEquals(0, snapshots.getSnapshotCount());
+            change(store, 10);
+        }
+
+        MusicBandStore restarted = new MusicBandStore("objects");
+        try (SnapshotManager ignored = start(restarted, file)) {
+            assertEquals(state(store), state(restarted));
+        }
+    }
+}
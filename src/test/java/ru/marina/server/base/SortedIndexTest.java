@@ -0,0 +1,155 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.model.MusicBand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.marina.server.base.SpatialGridTest.band;
+
+class SortedIndexTest {
+    private static final int KEYS = 997;
+
+    private static long key(MusicBand band) {
+        return band.getId() % KEYS;
+    }
+
+    private static final Comparator<MusicBand> ORDER = Comparator.comparingLong(SortedIndexTest::key)
+            .thenComparingLong(MusicBand::getId);
+
+    private static long[] ids(Iterable<MusicBand> bands, long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (MusicBand band : bands) {
+            if (key(band) >= from && key(band) <= to) {
+                ids.add(band.getId());
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void assertSameOrder(TreeSet<MusicBand> expected, SortedIndex index, Random random) {
+        assertEquals(expected.size(), index.size());
+        assertArrayEquals(ids(expected, Long.MIN_VALUE, Long.MAX_VALUE), index.page(0, Integer.MAX_VALUE));
+        for (int i = 0; i < 20; i++) {
+            long from = random.nextInt(KEYS + 20) - 10;
+            long to = from + random.nextInt(KEYS / 3);
+            long[] inRange = ids(expected, from, to);
+            assertEquals(inRange.length, index.count(from, to), "count " + from + ".." + to);
+
+            List<Long> walked = new ArrayList<>();
+            index.forEachBetween(from, to, walked::add);
+            assertArrayEquals(inRange, walked.stream().mapToLong(Long::longValue).toArray());
+
+            assertArrayEquals(ids(expected, Long.MIN_VALUE, from - 1), index.headBefore(from));
+        }
+        assertEquals(expected.size(), index.count(Long.MIN_VALUE, Long.MAX_VALUE));
+        if (!expected.isEmpty()) {
+            assertEquals(expected.first().getId(), index.first().getAsLong());
+            assertEquals(key(expected.first()), index.firstKey().getAsLong());
+            assertEquals(key(expected.last()), index.lastKey().getAsLong());
+        } else {
+            assertTrue(index.first().isEmpty());
+        }
+    }
+
+    @Test
+    void staysInOrderThroughSplitsAndMerges() {
+        Random random = new Random(7);
+        SortedIndex index = new SortedIndex(SortedIndexTest::key);
+        TreeSet<MusicBand> expected = new TreeSet<>(ORDER);
+        List<MusicBand> present = new ArrayList<>();
+
+        // grow far past one block, so blocks split
+        for (long id = 1; id <= 20 * SortedIndex.BLOCK_SIZE; id++) {
+            MusicBand band = band(id, 0, 0);
+            index.add(band);
+            expected.add(band);
+            present.add(band);
+        }
+        assertSameOrder(expected, index, random);
+
+        // remove most bands at random, so blocks fall below a quarter and are merged
+        while (present.size() > SortedIndex.BLOCK_SIZE / 3) {
+            MusicBand band = present.remove(random.nextInt(present.size()));
+            index.remove(band);
+            expected.remove(band);
+            if (present.size() % 997 == 0) {
+                assertSameOrder(expected, index, random);
+            }
+        }
+        assertSameOrder(expected, index, random);
+
+        // mix adds and removes around a few keys
+        for (int step = 0; step < 5000; step++) {
+            if (random.nextBoolean() && !present.isEmpty()) {
+                MusicBand band = present.remove(random.nextInt(present.size()));
+                index.remove(band);
+                expected.remove(band);
+            } else {
+                MusicBand band = band(1 + random.nextInt(50) * KEYS + random.nextInt(5), 0, 0);
+                if (expected.add(band)) {
+                    present.add(band);
+                }
+                index.add(band);
+            }
+        }
+        assertSameOrder(expected, index, random);
+    }
+
+    @Test
+    void removingEveryBandFromTheFrontAndBack() {
+        Random random = new Random(11);
+        SortedIndex index = new SortedIndex(SortedIndexTest::key);
+        TreeSet<MusicBand> expected = new TreeSet<>(ORDER);
+        for (long id = 1; id <= 4 * SortedIndex.BLOCK_SIZE; id++) {
+            MusicBand band = band(id, 0, 0);
+            index.add(band);
+            expected.add(band);
+        }
+        while (!expected.isEmpty()) {
+            MusicBand band = expected.size() % 2 == 0 ? expected.pollFirst() : expected.pollLast();
+            index.remove(band);
+            if (expected.size() % 101 == 0) {
+                assertSameOrder(expected, index, random);
+            }
+        }
+        assertSameOrder(expected, index, random);
+    }
+
+    @Test
+    void pagesAfterAPosition() {
+        SortedIndex index = new SortedIndex(SortedIndexTest::key);
+        for (long id = 1; id <= 3 * SortedIndex.BLOCK_SIZE; id++) {
+            index.add(band(id, 0, 0));
+        }
+        long[] all = index.page(0, Integer.MAX_VALUE);
+
+        assertArrayEquals(Arrays.copyOfRange(all, 600, 650), index.page(600, 50));
+        long afterId = all[599];
+        assertArrayEquals(Arrays.copyOfRange(all, 600, 650), index.pageAfter(afterId % KEYS, afterId, 50));
+        // a position that is not indexed
+        index.remove(band(afterId, 0, 0));
+        assertArrayEquals(Arrays.copyOfRange(all, 600, 650), index.pageAfter(afterId % KEYS, afterId, 50));
+        assertEquals(0, index.page(all.length, 10).length);
+    }
+
+    @Test
+    void addingTwiceKeepsOneEntry() {
+        SortedIndex index = new SortedIndex(SortedIndexTest::key);
+        index.add(band(5, 0, 0));
+        index.add(band(5, 0, 0));
+        index.remove(band(6, 0, 0));
+
+        assertEquals(1, index.size());
+        index.clear();
+        assertEquals(0, index.count(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+}
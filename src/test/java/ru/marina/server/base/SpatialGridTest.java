@@ -0,0 +1,97 @@
+package ru.marina.server.base;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpatialGridTest {
+    static MusicBand band(long id, double x, double y) {
+        return new MusicBand(id, "band" + id, new Coordinates(x, y), new Date(id), 1, 1,
+                MusicGenre.BLUES, new Label("label", 1L, 1));
+    }
+
+    private static long[] bruteForce(List<MusicBand> bands, double x, double y, int k) {
+        Comparator<MusicBand> byDistance = Comparator.comparingDouble((MusicBand band) -> {
+            double dx = band.getCoordinates().getX() - x;
+            double dy = band.getCoordinates().getY() - y;
+            return dx * dx + dy * dy;
+        }).thenComparing(MusicBand::getId);
+        return bands.stream().sorted(byDistance).limit(k).mapToLong(MusicBand::getId).toArray();
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(42);
+        SpatialGrid grid = new SpatialGrid();
+        List<MusicBand> bands = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            // some bands below the square, to land in the border cells
+            MusicBand band = band(id, random.nextDouble() * 714 - 400, random.nextDouble() * 664 - 350);
+            bands.add(band);
+            grid.add(band);
+        }
+        for (int query = 0; query < 50; query++) {
+            double x = random.nextDouble() * 800 - 400;
+            double y = random.nextDouble() * 800 - 400;
+            int k = 1 + random.nextInt(40);
+            assertArrayEquals(bruteForce(bands, x, y, k), grid.nearest(x, y, k));
+        }
+    }
+
+    @Test
+    void nearestOrdersEqualDistancesById() {
+        SpatialGrid grid = new SpatialGrid();
+        grid.add(band(3, 1, 0));
+        grid.add(band(1, -1, 0));
+        grid.add(band(2, 0, 1));
+        grid.add(band(4, 5, 5));
+
+        assertArrayEquals(new long[]{1, 2, 3}, grid.nearest(0, 0, 3));
+    }
+
+    @Test
+    void nearestWithCountBiggerThanGridReturnsEveryBand() {
+        SpatialGrid grid = new SpatialGrid();
+        for (long id = 1; id <= 40; id++) {
+            grid.add(band(id, id, -id));
+        }
+
+        long[] found = grid.nearest(0, 0, 100);
+
+        assertEquals(40, found.length);
+        assertEquals(1, found[0]);
+        assertEquals(40, found[39]);
+    }
+
+    @Test
+    void nearestWithHugeCountDoesNotAllocateForIt() {
+        SpatialGrid grid = new SpatialGrid();
+        grid.add(band(1, 10, 10));
+        grid.add(band(2, 20, 20));
+
+        assertArrayEquals(new long[]{1, 2}, grid.nearest(0, 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void nearestSkipsRemovedBands() {
+        SpatialGrid grid = new SpatialGrid();
+        MusicBand first = band(1, 0, 0);
+        grid.add(first);
+        grid.add(band(2, 100, 100));
+        grid.remove(first);
+
+        assertArrayEquals(new long[]{2}, grid.nearest(0, 0, 5));
+        assertArrayEquals(new long[0], grid.nearest(0, 0, 0));
+    }
+}
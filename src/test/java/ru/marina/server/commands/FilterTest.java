@@ -0,0 +1,81 @@
+package ru.marina.server.commands;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.base.Response;
+import ru.marina.base.Scalar;
+import ru.marina.exceptions.WrongArgsException;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.server.base.CLIController;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterTest {
+    private static Response filter(CLIController controller, String... conditions) throws WrongArgsException {
+        String[] args = new String[conditions.length + 1];
+        args[0] = "filter";
+        System.arraycopy(conditions, 0, args, 1, conditions.length);
+        return new Filter(controller).execute(new CommandContext(args, "test"));
+    }
+
+    private static CLIController controller(int bands) {
+        CLIController controller = new CLIController(new String[0]);
+        for (long id = 1; id <= bands; id++) {
+            controller.getMusicBands().add(new MusicBand(id, "band " + id, new Coordinates(id % 300, 0),
+                    new Date(1_600_000_000_000L + id), (int) id, 1, MusicGenre.POP, new Label("label", 1L, 1)));
+        }
+        return controller;
+    }
+
+    @Test
+    void openParticipantsRangeDoesNotUseTheIndex() throws WrongArgsException {
+        assertTrue(filter(controller(0), "participants=..").getMessage().endsWith("full scan"));
+
+        Response response = filter(controller(100), "participants=..", "name=band 1");
+        assertTrue(response.getMessage().endsWith("full scan"), response.getMessage());
+        assertEquals(12, response.getMusicBands().size());
+    }
+
+    @Test
+    void nonFiniteCoordinatesAreRejected() {
+        CLIController controller = controller(10);
+        for (String condition : new String[]{"x=NaN..", "x=..Infinity", "y=-Infinity..0", "y=NaN"}) {
+            assertThrows(WrongArgsException.class, () -> filter(controller, condition), condition);
+        }
+    }
+
+    @Test
+    void chosenFieldsComeAsRecords() throws WrongArgsException {
+        Response response = filter(controller(3), "order=id:desc", "limit=2", "fields=id,x,created,genre,label");
+
+        assertTrue(response.getMusicBands().isEmpty());
+        List<List<Scalar>> records = response.getRecords();
+        assertEquals(2, records.size());
+        List<Scalar> first = records.get(0);
+        assertEquals(List.of("id", "x", "created", "genre", "label"), first.stream().map(Scalar::getName).toList());
+        assertEquals(3, first.get(0).getLong());
+        assertEquals(3.0, first.get(1).getDouble());
+        assertEquals(new Date(1_600_000_000_003L), first.get(2).getDate());
+        assertEquals("POP", first.get(3).getText());
+        assertEquals("label", first.get(4).getText());
+        assertEquals(2, records.get(1).get(0).getLong());
+    }
+
+    @Test
+    void halfOpenParticipantsRangeUsesTheIndex() throws WrongArgsException {
+        Response below = filter(controller(100), "participants=..5");
+        assertTrue(below.getMessage().contains("participants index"), below.getMessage());
+        assertEquals(5, below.getMusicBands().size());
+
+        Response above = filter(controller(100), "participants=96..");
+        assertTrue(above.getMessage().contains("participants index"), above.getMessage());
+        assertEquals(5, above.getMusicBands().size());
+    }
+}
@@ -0,0 +1,136 @@
+package ru.marina.server.commands;
+
+import org.junit.jupiter.api.Test;
+import ru.marina.base.Response;
+import ru.marina.exceptions.WrongArgsException;
+import ru.marina.model.Coordinates;
+import ru.marina.model.Label;
+import ru.marina.model.MusicBand;
+import ru.marina.model.MusicGenre;
+import ru.marina.server.base.CLIController;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShowTest {
+    private static final String NEXT_PAGE = "Next page: show ";
+
+    private static Response show(CLIController controller, String... args) throws WrongArgsException {
+        String[] input = new String[args.length + 1];
+        input[0] = "show";
+        System.arraycopy(args, 0, input, 1, args.length);
+        return new Show(controller).execute(new CommandContext(input, "test"));
+    }
+
+    private static MusicBand sample(long id) {
+        return new MusicBand(id, "band " + id, new Coordinates(0, 0), new Date(id), (int) (id % 7) + 1, 1,
+                MusicGenre.POP, new Label("label", 1L, 1));
+    }
+
+    private static CLIController controller(int bands) {
+        CLIController controller = new CLIController(new String[0]);
+        for (long id = 1; id <= bands; id++) {
+            controller.getMusicBands().add(sample(id));
+        }
+        return controller;
+    }
+
+    /**
+     * Returns the arguments of the next page printed under the response, or null if there is none.
+     */
+    private static String[] nextPage(Response response) {
+        for (String line : response.getMessage().split(System.lineSeparator())) {
+            if (line.startsWith(NEXT_PAGE)) {
+                return line.substring(NEXT_PAGE.length()).split(" ");
+            }
+        }
+        return null;
+    }
+
+    private static List<Long> ids(List<MusicBand> bands) {
+        return bands.stream().map(MusicBand::getId).toList();
+    }
+
+    private static List<Long> inOrder(List<MusicBand> bands) {
+        return ids(bands.stream()
+                .sorted(Comparator.comparingInt(MusicBand::getNumberOfParticipants).thenComparing(MusicBand::getId))
+                .toList());
+    }
+
+    @Test
+    void followingTheCursorsShowsEveryBandOnce() throws WrongArgsException {
+        for (int count : new int[]{0, 39, 40, 250}) {
+            CLIController controller = controller(count);
+            List<MusicBand> shown = new ArrayList<>();
+            Response response = show(controller, "40");
+            shown.addAll(response.getMusicBands());
+            String[] next;
+            while ((next = nextPage(response)) != null) {
+                assertEquals("after", next[0]);
+                assertEquals("40", next[2]);
+                response = show(controller, next);
+                shown.addAll(response.getMusicBands());
+            }
+
+            assertEquals(inOrder(controller.getMusicBands().values()), ids(shown), count + " bands");
+            assertTrue(response.getMusicBands().size() < 40);
+        }
+    }
+
+    @Test
+    void cursorOutlivesChangesBeforeAndAtIt() throws WrongArgsException {
+        CLIController controller = controller(100);
+        Response first = show(controller, "30");
+        String[] next = nextPage(first);
+        MusicBand last = first.getMusicBands().get(29);
+
+        // the band under the cursor goes away and a new one sorts before it
+        controller.getMusicBands().remove(last.getId());
+        controller.getMusicBands().add(sample(700));
+        Response second = show(controller, next);
+
+        List<Long> expected = inOrder(controller.getMusicBands().values());
+        int from = expected.indexOf(first.getMusicBands().get(28).getId()) + 1;
+        assertEquals(expected.subList(from, from + 30), ids(second.getMusicBands()));
+    }
+
+    @Test
+    void cursorAfterTheLastBandShowsNothing() throws WrongArgsException {
+        Response response = show(controller(10), "after", "8:1000");
+
+        assertTrue(response.getMusicBands().isEmpty());
+        assertNull(nextPage(response));
+    }
+
+    @Test
+    void malformedCursorsAndLimitsAreRejected() {
+        CLIController controller = controller(10);
+        for (String[] args : new String[][]{{"after"}, {"after", "5"}, {"after", "5:"}, {"after", ":5"},
+                {"after", "1:2:3"}, {"after", "a:1"}, {"after", "1:1", "0"}, {"after", "1:1", "x"}, {"0"}, {"-1", "5"}}) {
+            assertThrows(WrongArgsException.class, () -> show(controller, args), String.join(" ", args));
+        }
+    }
+
+    @Test
+    void fullListingIsStreamedPageByPage() throws WrongArgsException {
+        CLIController controller = controller(250);
+        List<Response> parts = new ArrayList<>();
+
+        Response response = new Show(controller)
+                .execute(new CommandContext(new String[]{"show"}, null, "test", parts::add));
+
+        assertEquals(List.of(100, 100, 50), parts.stream().map(part -> part.getMusicBands().size()).toList());
+        List<MusicBand> streamed = new ArrayList<>();
+        parts.forEach(part -> streamed.addAll(part.getMusicBands()));
+        assertEquals(inOrder(controller.getMusicBands().values()), ids(streamed));
+        assertTrue(response.getMusicBands().isEmpty());
+        assertEquals("250 item(s) shown", response.getMessage());
+    }
+}